@@ -8,11 +8,12 @@ public class AlphaFreq implements Comparator<Word> {
      * Implementation of compare() method.
      * Compares the alphabetical order in ascending first, if a
      * comparison gives equal, then compare according to
-     * ascending frequency.
+     * ascending frequency. The alphabetical order is given by the
+     * collation keys of the words first.
      */
     @Override
     public int compare(Word o1, Word o2) {
-        int alphaResult = o1.getWord().compareTo(o2.getWord());
+        int alphaResult = o1.compareTo(o2);
         if (alphaResult == 0) {
             return Integer.compare(o1.getFrequency(), o2.getFrequency());
         }
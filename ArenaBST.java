@@ -0,0 +1,580 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+/**
+ * @author Dhanush Venkataramu
+ * Class for a BST stored in parallel primitive arrays instead of one
+ * object per node, with the same operations as BST. A node is an int id,
+ * given in insertion order, and is also the id of its element in the
+ * term table, so a tree of n elements is five arrays for the garbage
+ * collector to trace instead of n node objects. Arrays grow by doubling.
+ *
+ * Bytes per entry, with compressed references (heaps under 32 GB):
+ * <pre>
+ *              BST node                    ArenaBST
+ * header       12                          0
+ * element      4 (data)                    4 (term table)
+ * children     8 (left, right)             8 (int ids)
+ * size         4                           4
+ * height       4                           1 if balanced, else 0
+ * padding      0                           0
+ * total        32                          17 balanced, 16 plain
+ * </pre>
+ * After growth the arrays are at most half empty, 1.5 times the entry
+ * size on average, or exactly the entry size after trimToSize(). The
+ * elements themselves, for example the Word with its String and
+ * postings, cost the same in both.
+ * @param <T> specifies the generic for class ArenaBST.
+ */
+public class ArenaBST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T> {
+    /**
+     * Id of no node, the child of a leaf.
+     */
+    private static final int NIL = -1;
+    /**
+     * Initial capacity of the arrays.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * Comparator instance variable of the BST, null for natural order.
+     */
+    private final Comparator<T> comparator;
+    /**
+     * Flag to keep the BST height balanced (AVL) on every insert.
+     */
+    private final boolean balanced;
+    /**
+     * Term table, the element of each node by node id.
+     */
+    private Object[] terms = new Object[INITIAL_CAPACITY];
+    /**
+     * Left child of each node, NIL if none.
+     */
+    private int[] left = new int[INITIAL_CAPACITY];
+    /**
+     * Right child of each node, NIL if none.
+     */
+    private int[] right = new int[INITIAL_CAPACITY];
+    /**
+     * Number of nodes in the subtree rooted at each node.
+     */
+    private int[] size = new int[INITIAL_CAPACITY];
+    /**
+     * Height of the subtree rooted at each node, kept only if balanced.
+     */
+    private byte[] height;
+    /**
+     * Number of nodes, also the id of the next node.
+     */
+    private int count;
+    /**
+     * Id of the root node, NIL if BST is empty.
+     */
+    private int root = NIL;
+    /**
+     * Reusable array holding the nodes on the current insertion path.
+     */
+    private int[] path = new int[32];
+    /**
+     * Height of BST when not balanced, the deepest insertion so far.
+     */
+    private int plainHeight;
+    /**
+     * Constructor for building BST with natural order.
+     */
+    public ArenaBST() {
+        this(null, false);
+    }
+    /**
+     * Parameterized constructor for building BST with alternative order.
+     * @param comp specifies the comparator for BST.
+     */
+    public ArenaBST(Comparator<T> comp) {
+        this(comp, false);
+    }
+    /**
+     * Parameterized constructor for building BST with natural order,
+     * optionally self-balancing.
+     * @param isBalanced specifies if the BST should stay height balanced.
+     */
+    public ArenaBST(boolean isBalanced) {
+        this(null, isBalanced);
+    }
+    /**
+     * Parameterized constructor for building BST with alternative order,
+     * optionally self-balancing (AVL).
+     * @param comp specifies the comparator for BST.
+     * @param isBalanced specifies if the BST should stay height balanced.
+     */
+    public ArenaBST(Comparator<T> comp, boolean isBalanced) {
+        comparator = comp;
+        balanced = isBalanced;
+        if (balanced) {
+            height = new byte[INITIAL_CAPACITY];
+        }
+    }
+    /**
+     * Instance method to return the comparator.
+     * @return the comparator of BST.
+     */
+    @Override
+    public Comparator<T> comparator() {
+        return comparator;
+    }
+    /**
+     * Instance method to check if the BST is self-balancing.
+     * @return true if the BST keeps itself height balanced.
+     */
+    public boolean isBalanced() {
+        return balanced;
+    }
+    /**
+     * Instance method to return the root data of BST.
+     * @return null if BST is empty, word in root otherwise.
+     */
+    public T getRoot() {
+        if (root == NIL) {
+            return null;
+        }
+        return term(root);
+    }
+    /**
+     * Instance method to get height of BST, in O(1).
+     * @return 0 if tree is empty, height otherwise.
+     */
+    public int getHeight() {
+        if (root == NIL) {
+            return 0;
+        }
+        if (balanced) {
+            return height[root];
+        }
+        return plainHeight;
+    }
+    /**
+     * Instance method to get number of nodes in BST, in O(1).
+     * @return number of nodes.
+     */
+    public int getNumberOfNodes() {
+        return count;
+    }
+    /**
+     * Instance method to shrink the arrays to the number of nodes, once
+     * no more inserts are expected.
+     */
+    public void trimToSize() {
+        resize(Math.max(count, 1));
+    }
+    /**
+     * Instance method to get the rank of an element in BST, the number of
+     * elements before it in tree order, in O(height).
+     * @param key specifies the element, it need not be in BST.
+     * @return the number of elements in BST less than the key.
+     */
+    public int rank(T key) {
+        int res = 0;
+        int node = root;
+        while (node != NIL) {
+            int compareResult = compare(key, term(node));
+            if (compareResult == 0) {
+                return res + sizeOf(left[node]);
+            }
+            if (compareResult < 0) {
+                node = left[node];
+            } else {
+                res += sizeOf(left[node]) + 1;
+                node = right[node];
+            }
+        }
+        return res;
+    }
+    /**
+     * Instance method to select an element of BST by its rank, in O(height).
+     * @param k specifies the rank, from 0 in tree order.
+     * @return the element with k elements before it in tree order.
+     * @throws IndexOutOfBoundsException if k is not in [0, number of nodes).
+     */
+    public T select(int k) {
+        if (k < 0 || k >= count) {
+            throw new IndexOutOfBoundsException("Rank: " + k + ", Size: " + count);
+        }
+        int node = root;
+        while (true) {
+            int leftSize = sizeOf(left[node]);
+            if (k == leftSize) {
+                return term(node);
+            }
+            if (k < leftSize) {
+                node = left[node];
+            } else {
+                k -= leftSize + 1;
+                node = right[node];
+            }
+        }
+    }
+    /**
+     * Instance method to search element in BST.
+     * return node data if found, null otherwise.
+     */
+    @Override
+    public T search(T toSearch) {
+        int node = root;
+        while (node != NIL) {
+            int compareResult = compare(toSearch, term(node));
+            if (compareResult == 0) {
+                return term(node);
+            }
+            if (compareResult < 0) {
+                node = left[node];
+            } else {
+                node = right[node];
+            }
+        }
+        return null;
+    }
+    /**
+     * Instance method to insert element in BST.
+     */
+    @Override
+    public void insert(T toInsert) {
+        upsert(toInsert, null, null);
+    }
+    /**
+     * Instance method to find or insert element in BST in one traversal.
+     * @return the data found or inserted.
+     *
+     * Loop Details:
+     * Descend remembering the nodes passed on the path, and link a new
+     * node in the empty leaf node space we reach. Then count the new node
+     * in the size of every node on the path and, if balanced, walk the
+     * path back up rebalancing, stopping once a subtree height is unchanged.
+     */
+    @Override
+    public T upsert(T key, Function<? super T, ? extends T> ifAbsent,
+                    Consumer<? super T> ifPresent) {
+        if (root == NIL) {
+            root = newNode(key, ifAbsent);
+            return term(root);
+        }
+        int depth = 0;
+        int node = root;
+        int inserted;
+        while (true) {
+            int compareResult = compare(key, term(node));
+            if (compareResult == 0) {
+                if (ifPresent != null) {
+                    ifPresent.accept(term(node));
+                }
+                return term(node);
+            }
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = node;
+            int next = compareResult < 0 ? left[node] : right[node];
+            if (next == NIL) {
+                inserted = newNode(key, ifAbsent);
+                if (compareResult < 0) {
+                    left[node] = inserted;
+                } else {
+                    right[node] = inserted;
+                }
+                break;
+            }
+            node = next;
+        }
+        for (int i = 0; i < depth; i++) {
+            size[path[i]]++;
+        }
+        if (!balanced) {
+            plainHeight = Math.max(plainHeight, depth);
+            return term(inserted);
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            int cur = path[i];
+            int oldHeight = height[cur];
+            int sub = rebalance(cur);
+            if (i == 0) {
+                root = sub;
+            } else if (left[path[i - 1]] == cur) {
+                left[path[i - 1]] = sub;
+            } else {
+                right[path[i - 1]] = sub;
+            }
+            if (height[sub] == oldHeight) {
+                break;
+            }
+        }
+        return term(inserted);
+    }
+    /**
+     * Return an iterator to traverse through BST inorder fashion.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new InOrderIterator(null, null);
+    }
+    /**
+     * Return an iterator to traverse through BST inorder fashion,
+     * starting at the first element not less than from.
+     * @param from specifies the lower bound (inclusive).
+     * @return the iterator, positioned in O(height).
+     */
+    public Iterator<T> iterator(T from) {
+        return new InOrderIterator(from, null);
+    }
+    /**
+     * Instance method to view the elements from a lower bound up to an
+     * upper bound, in tree order.
+     * @param from specifies the lower bound (inclusive).
+     * @param to specifies the upper bound (exclusive).
+     * @return iterable over the elements in [from, to).
+     */
+    public Iterable<T> range(T from, T to) {
+        return () -> new InOrderIterator(from, to);
+    }
+    /**
+     * Instance method to view the elements less than an upper bound,
+     * in tree order.
+     * @param to specifies the upper bound (exclusive).
+     * @return iterable over the elements less than to.
+     */
+    public Iterable<T> headSet(T to) {
+        return () -> new InOrderIterator(null, to);
+    }
+    /**
+     * Instance method to view the elements not less than a lower bound,
+     * in tree order.
+     * @param from specifies the lower bound (inclusive).
+     * @return iterable over the elements not less than from.
+     */
+    public Iterable<T> tailSet(T from) {
+        return () -> new InOrderIterator(from, null);
+    }
+    /**
+     * Helper method to get the element of a node.
+     * @param node specifies the node id.
+     * @return the element.
+     */
+    @SuppressWarnings("unchecked")
+    private T term(int node) {
+        return (T) terms[node];
+    }
+    /**
+     * Helper method to add a node for a key that is not in BST, growing
+     * the arrays by doubling when they are full.
+     * @param toInsert specifies the key being inserted.
+     * @param ifAbsent creates the data to insert, null to insert the key.
+     * @return the id of the new node.
+     */
+    private int newNode(T toInsert, Function<? super T, ? extends T> ifAbsent) {
+        T data = ifAbsent == null ? toInsert : ifAbsent.apply(toInsert);
+        if (count == terms.length) {
+            resize(count * 2);
+        }
+        int node = count++;
+        terms[node] = data;
+        left[node] = NIL;
+        right[node] = NIL;
+        size[node] = 1;
+        return node;
+    }
+    /**
+     * Helper method to copy the arrays to a new capacity.
+     * @param capacity specifies the new capacity, at least the node count.
+     */
+    private void resize(int capacity) {
+        terms = Arrays.copyOf(terms, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        size = Arrays.copyOf(size, capacity);
+        if (balanced) {
+            height = Arrays.copyOf(height, capacity);
+        }
+    }
+    /**
+     * Helper method to compare two keys with the ordering of BST.
+     * @param a specifies the first key.
+     * @param b specifies the second key.
+     * @return negative, zero or positive as a is less, equal or greater.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null) {
+            return a.compareTo(b);
+        }
+        return comparator.compare(a, b);
+    }
+    /**
+     * Helper method to restore the AVL property at a node whose
+     * subtrees differ in height by at most two.
+     * @param node specifies the node to rebalance.
+     * @return the root of the rebalanced subtree.
+     */
+    private int rebalance(int node) {
+        updateHeight(node);
+        int balance = heightOf(left[node]) - heightOf(right[node]);
+        if (balance > 1) {
+            if (heightOf(left[left[node]]) < heightOf(right[left[node]])) {
+                left[node] = rotateLeft(left[node]);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (heightOf(right[right[node]]) < heightOf(left[right[node]])) {
+                right[node] = rotateRight(right[node]);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+    /**
+     * Helper method to rotate a subtree to the right.
+     * @param node specifies the root of the subtree.
+     * @return the new root of the subtree (the old left child).
+     */
+    private int rotateRight(int node) {
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+    /**
+     * Helper method to rotate a subtree to the left.
+     * @param node specifies the root of the subtree.
+     * @return the new root of the subtree (the old right child).
+     */
+    private int rotateLeft(int node) {
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+    /**
+     * Helper method to recompute the height and size of a node from
+     * its children.
+     * @param node specifies the node to update.
+     */
+    private void updateHeight(int node) {
+        height[node] = (byte) (Math.max(heightOf(left[node]), heightOf(right[node])) + 1);
+        size[node] = sizeOf(left[node]) + sizeOf(right[node]) + 1;
+    }
+    /**
+     * Helper method to get the stored size of a possibly empty subtree.
+     * @param node specifies the root of the subtree.
+     * @return 0 if empty, number of nodes in the subtree otherwise.
+     */
+    private int sizeOf(int node) {
+        if (node == NIL) {
+            return 0;
+        }
+        return size[node];
+    }
+    /**
+     * Helper method to get the stored height of a possibly empty subtree.
+     * @param node specifies the root of the subtree.
+     * @return -1 if empty, height of the subtree otherwise.
+     */
+    private int heightOf(int node) {
+        if (node == NIL) {
+            return -1;
+        }
+        return height[node];
+    }
+    /**
+     * Private nested class to iterate BST in order, between optional
+     * bounds, with a stack of node ids.
+     */
+    private final class InOrderIterator implements Iterator<T> {
+        /**
+         * Stack of nodes whose turn is still to come.
+         */
+        private int[] stack = new int[32];
+        /**
+         * Number of nodes on the stack.
+         */
+        private int top;
+        /**
+         * upper bound (exclusive) of the iteration, null if unbounded.
+         */
+        private final T upper;
+        /**
+         * constructor for nested iterator class.
+         * @param from specifies the lower bound (inclusive), null if
+         * unbounded.
+         * @param to specifies the upper bound (exclusive), null if
+         * unbounded.
+         */
+        private InOrderIterator(T from, T to) {
+            upper = to;
+            if (from == null) {
+                fillLeftSub(root);
+            } else {
+                seek(from);
+            }
+        }
+        /**
+         * Method to fill the stack as if iteration had reached the first
+         * element not less than the key.
+         * @param key specifies the lower bound (inclusive).
+         */
+        private void seek(T key) {
+            int node = root;
+            while (node != NIL) {
+                if (compare(key, term(node)) <= 0) {
+                    push(node);
+                    node = left[node];
+                } else {
+                    node = right[node];
+                }
+            }
+        }
+        /**
+         * Method to push the nodes down to the leftmost child.
+         * @param node specifies the root of the subtree.
+         */
+        private void fillLeftSub(int node) {
+            while (node != NIL) {
+                push(node);
+                node = left[node];
+            }
+        }
+        /**
+         * Method to push a node, growing the stack by doubling.
+         * @param node specifies the node id.
+         */
+        private void push(int node) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+            }
+            stack[top++] = node;
+        }
+        /**
+         * Implementation of hasNext() method.
+         * Returns if there are any elements left in stack, before the
+         * upper bound.
+         */
+        @Override
+        public boolean hasNext() {
+            return top > 0 && (upper == null || compare(term(stack[top - 1]), upper) < 0);
+        }
+        /**
+         * Implementation of next() method.
+         */
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int node = stack[--top];
+            fillLeftSub(right[node]);
+            return term(node);
+        }
+    }
+}
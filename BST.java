@@ -1,6 +1,11 @@
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Stack;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 /**
  * @author Dhanush Venkataramu.
  * Class for BST operations implementation.
@@ -15,6 +20,39 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
      * Comparator instance variable of the BST.
      */
     private Comparator<T> comparator;
+    /**
+     * Flag to keep the BST height balanced (AVL) on every insert.
+     */
+    private boolean balanced;
+    /**
+     * Reusable array holding the nodes on the current insertion path,
+     * so an insert can walk back up without recursion.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<T>[] path = (Node<T>[]) new Node<?>[32];
+    /**
+     * Height of BST when not balanced, the deepest insertion so far.
+     */
+    private int plainHeight;
+    /**
+     * Receiver of the comparisons and depth of each operation, null if
+     * not measuring.
+     */
+    private Metrics metrics;
+    /**
+     * Hash function agreeing with the ordering of BST, null if exact
+     * lookups walk the tree.
+     */
+    private ToIntFunction<? super T> hasher;
+    /**
+     * Hash slots of the nodes of BST for exact lookups, open addressing
+     * with linear probing, null if not hashing.
+     */
+    private Node<T>[] slots;
+    /**
+     * Hash of the node in each slot.
+     */
+    private int[] slotHashes;
     /**
      * Constructor for building BST with natural order.
      */
@@ -26,16 +64,94 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
      * @param comp specifies the comparator for BST.
      */
     public BST(Comparator<T> comp) {
+        this(comp, false);
+    }
+    /**
+     * Parameterized constructor for building BST with natural order,
+     * optionally self-balancing.
+     * @param isBalanced specifies if the BST should stay height balanced.
+     */
+    public BST(boolean isBalanced) {
+        this(null, isBalanced);
+    }
+    /**
+     * Parameterized constructor for building BST with alternative order,
+     * optionally self-balancing. A balanced BST rotates nodes on insert
+     * (AVL) so the height stays logarithmic for any insertion order.
+     * @param comp specifies the comparator for BST.
+     * @param isBalanced specifies if the BST should stay height balanced.
+     */
+    public BST(Comparator<T> comp, boolean isBalanced) {
         comparator = comp;
+        balanced = isBalanced;
         root = null;
     }
     /**
      * Instance method to return the comparator.
      * @return the comparator of BST.
      */
+    @Override
     public Comparator<T> comparator() {
         return comparator;
     }
+    /**
+     * Instance method to measure the operations of BST.
+     * @param m specifies the receiver of the measurements, null to stop
+     * measuring.
+     */
+    public void setMetrics(Metrics m) {
+        metrics = m;
+    }
+    /**
+     * Instance method to answer exact lookups by hashing. BST then keeps
+     * a hash table of its nodes next to the tree, so search(), and
+     * insert() and upsert() of an element already present, take O(1)
+     * instead of O(height) comparisons. Iteration, ranks and ranges are
+     * unchanged, and a new element is still placed by walking the tree.
+     * The table costs two slots per node at most, 8 bytes each.
+     *
+     * The hash must agree with the ordering: elements comparing equal
+     * must hash equal, as Word.hasher() gives for words. Equality is
+     * still decided by the ordering. Measured lookups answered by the
+     * table are reported as one comparison, or none if missing, at depth 0.
+     * @param h specifies the hash function, null to stop hashing.
+     */
+    @SuppressWarnings("unchecked")
+    public void setHasher(ToIntFunction<? super T> h) {
+        hasher = h;
+        slots = null;
+        slotHashes = null;
+        if (h == null) {
+            return;
+        }
+        int capacity = 16;
+        while (capacity < 2 * sizeOf(root) + 2) {
+            capacity *= 2;
+        }
+        slots = (Node<T>[]) new Node<?>[capacity];
+        slotHashes = new int[capacity];
+        Stack<Node<T>> pending = new Stack<Node<T>>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Node<T> node = pending.pop();
+            hashNode(node, mix(hasher.applyAsInt(node.data)));
+            if (node.left != null) {
+                pending.push(node.left);
+            }
+            if (node.right != null) {
+                pending.push(node.right);
+            }
+        }
+    }
+    /**
+     * Instance method to check if the BST is self-balancing.
+     * @return true if the BST keeps itself height balanced.
+     */
+    public boolean isBalanced() {
+        return balanced;
+    }
     /**
      * Instance method to return the root data of BST.
      * Protecting private data by returning a deep copy.
@@ -49,22 +165,72 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
     }
     /**
      * Instance method to get height of BST.
-     * Helper method to recursively implement.
+     * The height is kept up to date on insert, so this takes O(1).
      * @return 0 if tree is empty, height otherwise.
      */
     public int getHeight() {
         if (root == null) {
             return 0;
         }
-       return getHeightHelper(root);
+        if (balanced) {
+            return root.height;
+        }
+        return plainHeight;
     }
     /**
      * Instance method to get number of nodes in BST.
-     * Helper method to recursively implement.
+     * Every node keeps the size of its subtree, so this takes O(1).
      * @return number of nodes.
      */
     public int getNumberOfNodes() {
-        return nodeNumberHelper(root);
+        return sizeOf(root);
+    }
+    /**
+     * Instance method to get the rank of an element in BST, the number of
+     * elements before it in tree order, in O(height).
+     * @param key specifies the element, it need not be in BST.
+     * @return the number of elements in BST less than the key.
+     */
+    public int rank(T key) {
+        int res = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int compareResult = compare(key, node.data);
+            if (compareResult == 0) {
+                return res + sizeOf(node.left);
+            }
+            if (compareResult < 0) {
+                node = node.left;
+            } else {
+                res += sizeOf(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return res;
+    }
+    /**
+     * Instance method to select an element of BST by its rank, in O(height).
+     * @param k specifies the rank, from 0 in tree order.
+     * @return the element with k elements before it in tree order.
+     * @throws IndexOutOfBoundsException if k is not in [0, number of nodes).
+     */
+    public T select(int k) {
+        if (k < 0 || k >= sizeOf(root)) {
+            throw new IndexOutOfBoundsException("Rank: " + k + ", Size: " + sizeOf(root));
+        }
+        Node<T> node = root;
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            if (k == leftSize) {
+                return node.data;
+            }
+            if (k < leftSize) {
+                node = node.left;
+            } else {
+                k -= leftSize + 1;
+                node = node.right;
+            }
+        }
     }
     /**
      * Instance method to get search element in BST.
@@ -72,14 +238,27 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
      */
     @Override
     public T search(T toSearch) {
-        if (root == null) {
-            return null;
+        if (hasher != null) {
+            Node<T> res = searchHashed(toSearch);
+            if (res == null) {
+                if (metrics != null) {
+                    metrics.search(0, 0);
+                }
+                return null;
+            }
+            if (metrics != null) {
+                metrics.search(1, 0);
+            }
+            return res.data;
+        }
+        if (metrics != null) {
+            return searchMeasured(toSearch);
         }
         Node<T> res;
         if (comparator == null) {
-            res = searchNatural(root, toSearch);
+            res = searchNatural(toSearch);
         } else {
-            res = searchAlter(root,  toSearch);
+            res = searchAlter(toSearch);
         }
         if (res != null) {
             return res.data;
@@ -93,10 +272,41 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
      */
     @Override
     public void insert(T toInsert) {
-        if (comparator == null) {
-            root = insertNatural(root, toInsert);
+        if (hasher != null) {
+            Node<T> node = searchHashed(toInsert);
+            if (node != null) {
+                found(node, null, 0);
+                return;
+            }
+        }
+        if (balanced) {
+            insertBalanced(toInsert, null, null);
+        } else if (comparator == null) {
+            insertNatural(toInsert, null, null);
         } else {
-            root = insertAlter(root, toInsert);
+            insertAlter(toInsert, null, null);
+        }
+    }
+    /**
+     * Instance method to find or insert element in BST in one traversal.
+     * using alternative order if comparator present,
+     * natural order otherwise.
+     */
+    @Override
+    public T upsert(T key, Function<? super T, ? extends T> ifAbsent,
+                    Consumer<? super T> ifPresent) {
+        if (hasher != null) {
+            Node<T> node = searchHashed(key);
+            if (node != null) {
+                return found(node, ifPresent, 0);
+            }
+        }
+        if (balanced) {
+            return insertBalanced(key, ifAbsent, ifPresent);
+        } else if (comparator == null) {
+            return insertNatural(key, ifAbsent, ifPresent);
+        } else {
+            return insertAlter(key, ifAbsent, ifPresent);
         }
     }
     /**
@@ -104,146 +314,508 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
      */
     @Override
     public Iterator<T> iterator() {
-        return new InOrderIterator();
+        return new InOrderIterator(null, null);
     }
     /**
-     * Helper method to get height recursively.
-     * @param node specifies the node currently traversing.
-     * @return height of the BST.
-     *
-     * Recursion Details:
-     * Base Case: if we reached the leaf node, return -1.
-     * Recursion call: pass the left child to get to the leftmost node,
-     * and pass right to child to get to the rightmost node.
-     * Increment 1 at each level with the highest left/right subtree height.
+     * Return an iterator to traverse through BST inorder fashion,
+     * starting at the first element not less than from.
+     * @param from specifies the lower bound (inclusive).
+     * @return the iterator, positioned in O(height).
      */
-    private int getHeightHelper(Node<T> node) {
-        if (node == null) {
-            return -1;
-        }
-        int leftTreeHeight =  getHeightHelper(node.left);
-        int rightTreeHeight = getHeightHelper(node.right);
-        return Math.max(leftTreeHeight, rightTreeHeight) + 1;
+    public Iterator<T> iterator(T from) {
+        return new InOrderIterator(from, null);
     }
     /**
-     * Helper Method to get the number of nodes recursively.
-     * @param node specifies the node currently traversing.
-     * @return the number of nodes in BST.
-     *
-     * Recursion Details:
-     * Base Case: if we reach the leaf node return 0.
-     * Recursion call: Increment one for this node and pass the left
-     * and right child for two other recursive calls.
+     * Instance method to view the elements from a lower bound up to an
+     * upper bound, in tree order.
+     * @param from specifies the lower bound (inclusive).
+     * @param to specifies the upper bound (exclusive).
+     * @return iterable over the elements in [from, to).
      */
-    private int nodeNumberHelper(Node<T> node) {
-        if (node == null) {
-            return 0;
-        }
-        return 1 + nodeNumberHelper(node.right) + nodeNumberHelper(node.left);
+    public Iterable<T> range(T from, T to) {
+        return () -> new InOrderIterator(from, to);
+    }
+    /**
+     * Instance method to view the elements less than an upper bound,
+     * in tree order.
+     * @param to specifies the upper bound (exclusive).
+     * @return iterable over the elements less than to.
+     */
+    public Iterable<T> headSet(T to) {
+        return () -> new InOrderIterator(null, to);
+    }
+    /**
+     * Instance method to view the elements not less than a lower bound,
+     * in tree order.
+     * @param from specifies the lower bound (inclusive).
+     * @return iterable over the elements not less than from.
+     */
+    public Iterable<T> tailSet(T from) {
+        return () -> new InOrderIterator(from, null);
     }
     /**
      * Helper Method to search BST with alternative ordering.
-     * @param node specifies the current node traversing.
      * @param toSearch specifies the key being searched.
      * @return null if not found, node of BST if found.
      *
-     * Recursion Details:
-     * Base Case: If we reach the leaf node return null, if we found the
-     * node matching key, return the BST node.
-     * Recursion Case: If the key is less than the current node data, pass
-     * left child to a recursive call with key and comparator, else pass the
-     * right child to a recursive call with key and comparator.
-     */
-    private Node<T> searchAlter(Node<T> node, T toSearch) {
-        if (node == null || comparator.compare(toSearch, node.data) == 0) {
-            return node;
-        }
-        if (comparator.compare(toSearch, node.data) < 0) {
-            return searchAlter(node.left, toSearch);
-        } else {
-            return searchAlter(node.right, toSearch);
+     * Loop Details:
+     * Starting from the root, compare the key once with the current
+     * node data. Stop if equal, else move to the left child if the key
+     * is less and to the right child otherwise, until we fall off a leaf.
+     */
+    private Node<T> searchAlter(T toSearch) {
+        Node<T> node = root;
+        while (node != null) {
+            int compareResult = comparator.compare(toSearch, node.data);
+            if (compareResult == 0) {
+                return node;
+            }
+            if (compareResult < 0) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
         }
+        return null;
     }
     /**
      * Helper Method to search BST with natural ordering.
-     * @param node specifies the current node traversing.
      * @param toSearch specifies the key being searched.
      * @return null if not found, node of BST if found.
      *
-     * Recursion Details:
-     * Base Case: If we reach the leaf node return null, if we found the
-     * node matching key, return the BST node.
-     * Recursion Case: If the key is less than the current node data, pass
-     * left child to a recursive call with key, else pass the
-     * right child to a recursive call with key.
-     */
-    private Node<T> searchNatural(Node<T> node, T toSearch) {
-        if (node == null || toSearch.compareTo(node.data) == 0) {
-            return node;
-        }
-        if (toSearch.compareTo(node.data) < 0) {
-            return searchNatural(node.left, toSearch);
-        } else {
-            return searchNatural(node.right, toSearch);
+     * Loop Details:
+     * Starting from the root, compare the key once with the current
+     * node data. Stop if equal, else move to the left child if the key
+     * is less and to the right child otherwise, until we fall off a leaf.
+     */
+    private Node<T> searchNatural(T toSearch) {
+        Node<T> node = root;
+        while (node != null) {
+            int compareResult = toSearch.compareTo(node.data);
+            if (compareResult == 0) {
+                return node;
+            }
+            if (compareResult < 0) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
         }
+        return null;
     }
     /**
      * Helper Method to insert in BST with alternative ordering.
-     * @param node specifies the current node traversing.
      * @param toInsert specifies the key being inserted.
-     * @return the root of the BST after inserting.
+     * @param ifAbsent creates the data to insert, null to insert the key.
+     * @param ifPresent updates the data found, null to leave it as is.
+     * @return the data found or inserted.
      *
-     * Recursion Details:
-     * Base Cases: If we reach the empty leaf node space, insert node
-     * in that place. If we find a node with key already present, just
-     * return the same node.
-     * Recursion Case: If the key is less than the current node data, pass
-     * left child to a recursive call with key, else pass the
-     * right child to a recursive call with key.
-     */
-    private Node<T> insertAlter(Node<T> node, T toInsert) {
-        if (node == null) {
-            return new Node<T>(toInsert);
-        }
-        int compareResult = comparator.compare(toInsert, node.data);
-        if (compareResult == 0) {
-            return node;
+     * Loop Details:
+     * Starting from the root, compare the key once with the current
+     * node data. If equal the key is already present, the data found is
+     * updated and nothing is inserted. Else move to the left or right
+     * child, and insert the new node in the empty leaf node space we
+     * reach. Then count the new node in the size of every node on the path.
+     */
+    private T insertAlter(T toInsert, Function<? super T, ? extends T> ifAbsent,
+                          Consumer<? super T> ifPresent) {
+        if (root == null) {
+            root = newNode(toInsert, ifAbsent);
+            measureInsert(0, true);
+            return root.data;
         }
-        if (compareResult < 0) {
-            node.left = insertAlter(node.left, toInsert);
-        } else {
-            node.right = insertAlter(node.right, toInsert);
+        int depth = 0;
+        Node<T> node = root;
+        Node<T> inserted;
+        while (true) {
+            int compareResult = comparator.compare(toInsert, node.data);
+            if (compareResult == 0) {
+                return found(node, ifPresent, depth);
+            }
+            pushPath(depth++, node);
+            if (compareResult < 0) {
+                if (node.left == null) {
+                    inserted = newNode(toInsert, ifAbsent);
+                    node.left = inserted;
+                    break;
+                }
+                node = node.left;
+            } else {
+                if (node.right == null) {
+                    inserted = newNode(toInsert, ifAbsent);
+                    node.right = inserted;
+                    break;
+                }
+                node = node.right;
+            }
         }
-        return node;
+        growPath(depth);
+        plainHeight = Math.max(plainHeight, depth);
+        measureInsert(depth, true);
+        return inserted.data;
     }
     /**
      * Helper Method to insert in BST with natural ordering.
-     * @param node specifies the current node traversing.
      * @param toInsert specifies the key being inserted.
-     * @return the root of the BST after inserting.
+     * @param ifAbsent creates the data to insert, null to insert the key.
+     * @param ifPresent updates the data found, null to leave it as is.
+     * @return the data found or inserted.
      *
-     * Recursion Details:
-     * Base Cases: If we reach the empty leaf node space, insert node
-     * in that place. If we find a node with key already present, just
-     * return the same node.
-     * Recursion Case: If the key is less than the current node data, pass
-     * left child to a recursive call with key, else pass the
-     * right child to a recursive call with key.
-     */
-    private  Node<T> insertNatural(Node<T> node, T toInsert) {
-        if (node == null) {
-            return new Node<T>(toInsert);
+     * Loop Details:
+     * Starting from the root, compare the key once with the current
+     * node data. If equal the key is already present, the data found is
+     * updated and nothing is inserted. Else move to the left or right
+     * child, and insert the new node in the empty leaf node space we
+     * reach. Then count the new node in the size of every node on the path.
+     */
+    private T insertNatural(T toInsert, Function<? super T, ? extends T> ifAbsent,
+                          Consumer<? super T> ifPresent) {
+        if (root == null) {
+            root = newNode(toInsert, ifAbsent);
+            measureInsert(0, true);
+            return root.data;
+        }
+        int depth = 0;
+        Node<T> node = root;
+        Node<T> inserted;
+        while (true) {
+            int compareResult = toInsert.compareTo(node.data);
+            if (compareResult == 0) {
+                return found(node, ifPresent, depth);
+            }
+            pushPath(depth++, node);
+            if (compareResult < 0) {
+                if (node.left == null) {
+                    inserted = newNode(toInsert, ifAbsent);
+                    node.left = inserted;
+                    break;
+                }
+                node = node.left;
+            } else {
+                if (node.right == null) {
+                    inserted = newNode(toInsert, ifAbsent);
+                    node.right = inserted;
+                    break;
+                }
+                node = node.right;
+            }
+        }
+        growPath(depth);
+        plainHeight = Math.max(plainHeight, depth);
+        measureInsert(depth, true);
+        return inserted.data;
+    }
+    /**
+     * Helper Method to insert in BST keeping it height balanced (AVL).
+     * Uses alternative ordering if comparator present, natural otherwise.
+     * @param toInsert specifies the key being inserted.
+     * @param ifAbsent creates the data to insert, null to insert the key.
+     * @param ifPresent updates the data found, null to leave it as is.
+     * @return the data found or inserted.
+     *
+     * Loop Details:
+     * Descend as in a plain insert, remembering the nodes passed on the
+     * path. Then walk the path back up, rebalancing each node and linking
+     * the rebalanced subtree to its parent, and stop early once a subtree
+     * height is unchanged since no ancestor can be out of balance then.
+     */
+    private T insertBalanced(T toInsert, Function<? super T, ? extends T> ifAbsent,
+                             Consumer<? super T> ifPresent) {
+        if (root == null) {
+            root = newNode(toInsert, ifAbsent);
+            measureInsert(0, true);
+            return root.data;
+        }
+        int depth = 0;
+        Node<T> node = root;
+        Node<T> inserted;
+        while (true) {
+            int compareResult = compare(toInsert, node.data);
+            if (compareResult == 0) {
+                return found(node, ifPresent, depth);
+            }
+            pushPath(depth++, node);
+            if (compareResult < 0) {
+                if (node.left == null) {
+                    inserted = newNode(toInsert, ifAbsent);
+                    node.left = inserted;
+                    break;
+                }
+                node = node.left;
+            } else {
+                if (node.right == null) {
+                    inserted = newNode(toInsert, ifAbsent);
+                    node.right = inserted;
+                    break;
+                }
+                node = node.right;
+            }
         }
-        if (toInsert.compareTo(node.data) == 0) {
-            return node;
+        growPath(depth);
+        for (int i = depth - 1; i >= 0; i--) {
+            Node<T> cur = path[i];
+            int oldHeight = cur.height;
+            Node<T> sub = rebalance(cur);
+            if (i == 0) {
+                root = sub;
+            } else if (path[i - 1].left == cur) {
+                path[i - 1].left = sub;
+            } else {
+                path[i - 1].right = sub;
+            }
+            if (sub.height == oldHeight) {
+                break;
+            }
         }
-        if (toInsert.compareTo(node.data) < 0) {
-            node.left = insertNatural(node.left, toInsert);
+        measureInsert(depth, true);
+        return inserted.data;
+    }
+    /**
+     * Helper method to build the node for a key that is not in BST.
+     * @param toInsert specifies the key being inserted.
+     * @param ifAbsent creates the data to insert, null to insert the key.
+     * @return the new node.
+     */
+    private Node<T> newNode(T toInsert, Function<? super T, ? extends T> ifAbsent) {
+        Node<T> res;
+        if (ifAbsent == null) {
+            res = new Node<T>(toInsert);
         } else {
-            node.right = insertNatural(node.right, toInsert);
+            res = new Node<T>(ifAbsent.apply(toInsert));
+        }
+        if (hasher != null) {
+            if (2 * sizeOf(root) + 2 > slots.length) {
+                rehash(slots.length * 2);
+            }
+            hashNode(res, mix(hasher.applyAsInt(res.data)));
+        }
+        return res;
+    }
+    /**
+     * Helper Method to search BST by the hash table, for an exact lookup.
+     * @param toSearch specifies the key being searched.
+     * @return null if not found, node of BST if found.
+     *
+     * Loop Details:
+     * Starting from the slot the hash points to, compare the key with
+     * the node of each occupied slot having the same hash. Stop if equal,
+     * else move to the next slot, until we reach an empty slot.
+     */
+    private Node<T> searchHashed(T toSearch) {
+        int h = mix(hasher.applyAsInt(toSearch));
+        int mask = slots.length - 1;
+        for (int i = h & mask; slots[i] != null; i = (i + 1) & mask) {
+            if (slotHashes[i] == h && compare(toSearch, slots[i].data) == 0) {
+                return slots[i];
+            }
+        }
+        return null;
+    }
+    /**
+     * Helper method to put a node in the first free slot for its hash.
+     * @param node specifies the node.
+     * @param h specifies the mixed hash of the node data.
+     */
+    private void hashNode(Node<T> node, int h) {
+        int mask = slots.length - 1;
+        int i = h & mask;
+        while (slots[i] != null) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = node;
+        slotHashes[i] = h;
+    }
+    /**
+     * Helper method to rebuild the hash table with a new number of slots.
+     * @param capacity specifies the number of slots, a power of two.
+     */
+    @SuppressWarnings("unchecked")
+    private void rehash(int capacity) {
+        Node<T>[] oldSlots = slots;
+        int[] oldHashes = slotHashes;
+        slots = (Node<T>[]) new Node<?>[capacity];
+        slotHashes = new int[capacity];
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != null) {
+                hashNode(oldSlots[i], oldHashes[i]);
+            }
+        }
+    }
+    /**
+     * Helper method to mix the high bits of a hash into the low ones,
+     * which pick the slot.
+     * @param h specifies the hash.
+     * @return the mixed hash.
+     */
+    private static int mix(int h) {
+        return h ^ (h >>> 16);
+    }
+    /**
+     * Helper method to hand the data of a node matching the key
+     * to the update callback.
+     * @param node specifies the node found.
+     * @param ifPresent updates the data found, null to leave it as is.
+     * @param depth specifies the depth of the node found.
+     * @return the data found.
+     */
+    private T found(Node<T> node, Consumer<? super T> ifPresent, int depth) {
+        measureInsert(depth, false);
+        if (ifPresent != null) {
+            ifPresent.accept(node.data);
+        }
+        return node.data;
+    }
+    /**
+     * Helper Method to search BST while measuring the comparisons and
+     * depth of the search.
+     * @param toSearch specifies the key being searched.
+     * @return null if not found, node data if found.
+     */
+    private T searchMeasured(T toSearch) {
+        int depth = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int compareResult = compare(toSearch, node.data);
+            if (compareResult == 0) {
+                metrics.search(depth + 1, depth);
+                return node.data;
+            }
+            depth++;
+            if (compareResult < 0) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        metrics.search(depth, depth);
+        return null;
+    }
+    /**
+     * Helper method to report an insert to the metrics, if measuring.
+     * Every node on the path to the node found or inserted is compared
+     * once with the key.
+     * @param depth specifies the depth of the node found or inserted.
+     * @param inserted specifies if a new node was inserted.
+     */
+    private void measureInsert(int depth, boolean inserted) {
+        if (metrics != null) {
+            metrics.insert(inserted ? depth : depth + 1, depth, inserted);
+        }
+    }
+    /**
+     * Helper method to count a new node in the size of every node on the
+     * insertion path.
+     * @param depth specifies the number of nodes on the path.
+     */
+    private void growPath(int depth) {
+        for (int i = 0; i < depth; i++) {
+            path[i].size++;
+        }
+    }
+    /**
+     * Helper method to record a node on the insertion path,
+     * growing the path array by doubling when it is full.
+     * @param depth specifies the position of the node on the path.
+     * @param node specifies the node to record.
+     */
+    private void pushPath(int depth, Node<T> node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, path.length * 2);
+        }
+        path[depth] = node;
+    }
+    /**
+     * Helper method to compare two keys with the ordering of BST.
+     * @param a specifies the first key.
+     * @param b specifies the second key.
+     * @return negative, zero or positive as a is less, equal or greater.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null) {
+            return a.compareTo(b);
+        }
+        return comparator.compare(a, b);
+    }
+    /**
+     * Helper method to restore the AVL property at a node whose
+     * subtrees differ in height by at most two.
+     * @param node specifies the node to rebalance.
+     * @return the root of the rebalanced subtree.
+     */
+    private Node<T> rebalance(Node<T> node) {
+        updateHeight(node);
+        int balance = heightOf(node.left) - heightOf(node.right);
+        if (balance > 1) {
+            if (heightOf(node.left.left) < heightOf(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (heightOf(node.right.right) < heightOf(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
         }
         return node;
     }
+    /**
+     * Helper method to rotate a subtree to the right.
+     * @param node specifies the root of the subtree.
+     * @return the new root of the subtree (the old left child).
+     */
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+    /**
+     * Helper method to rotate a subtree to the left.
+     * @param node specifies the root of the subtree.
+     * @return the new root of the subtree (the old right child).
+     */
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+    /**
+     * Helper method to recompute the height and size of a node from
+     * its children.
+     * @param node specifies the node to update.
+     */
+    private void updateHeight(Node<T> node) {
+        node.height = Math.max(heightOf(node.left), heightOf(node.right)) + 1;
+        node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
+    }
+    /**
+     * Helper method to get the stored size of a possibly empty subtree.
+     * @param node specifies the root of the subtree.
+     * @return 0 if empty, number of nodes in the subtree otherwise.
+     */
+    private int sizeOf(Node<T> node) {
+        if (node == null) {
+            return 0;
+        }
+        return node.size;
+    }
+    /**
+     * Helper method to get the stored height of a possibly empty subtree.
+     * @param node specifies the root of the subtree.
+     * @return -1 if empty, height of the subtree otherwise.
+     */
+    private int heightOf(Node<T> node) {
+        if (node == null) {
+            return -1;
+        }
+        return node.height;
+    }
     /**
      * Private nested class to implement iterator methods.
      */
@@ -255,12 +827,42 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
          * store nodes till leftmost child and store hen the right child.
          */
         private Stack<Node<T>> myStack;
+        /**
+         * upper bound (exclusive) of the iteration, null if unbounded.
+         */
+        private T upper;
         /**
          * constructor for nested iterator class.
+         * @param from specifies the lower bound (inclusive), null if
+         * unbounded.
+         * @param to specifies the upper bound (exclusive), null if
+         * unbounded.
          */
-        private InOrderIterator() {
+        private InOrderIterator(T from, T to) {
             myStack = new Stack<Node<T>>();
-            fillLeftSub(root);
+            upper = to;
+            if (from == null) {
+                fillLeftSub(root);
+            } else {
+                seek(from);
+            }
+        }
+        /**
+         * Method to fill the stack as if iteration had reached the first
+         * element not less than the key: walking down from the root, keep
+         * the nodes not less than the key, whose turn is still to come.
+         * @param key specifies the lower bound (inclusive).
+         */
+        private void seek(T key) {
+            Node<T> node = root;
+            while (node != null) {
+                if (compare(key, node.data) <= 0) {
+                    myStack.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
         }
         /**
          * Method to fill all the nodes on left subtree till
@@ -276,11 +878,15 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
         }
         /**
          * Implementation of hasNext() method.
-         * Returns if there are any elements left in stack.
+         * Returns if there are any elements left in stack, before the
+         * upper bound.
          */
         @Override
         public boolean hasNext() {
-            return !myStack.isEmpty();
+            if (myStack.isEmpty()) {
+                return false;
+            }
+            return upper == null || compare(myStack.peek().data, upper) < 0;
         }
         /**
          * Implementation of the next() method, pops the leftmost child
@@ -289,6 +895,9 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
          */
         @Override
         public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
             Node<T> cur = myStack.pop();
             fillLeftSub(cur.right);
             return cur.data;
@@ -311,6 +920,15 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
          * right child of the node.
          */
         private Node<T> right;
+        /**
+         * height of the subtree rooted at the node, maintained only
+         * when the BST is balanced.
+         */
+        private int height;
+        /**
+         * number of nodes in the subtree rooted at the node.
+         */
+        private int size;
         /**
          * Constructor to build a new node.
          * @param d specifies the data to be stored.
@@ -329,6 +947,13 @@ public class BST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T
             data = d;
             left = l;
             right = r;
+            size = 1;
+            if (l != null) {
+                size += l.size;
+            }
+            if (r != null) {
+                size += r.size;
+            }
         }
     }
 
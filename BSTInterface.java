@@ -1,3 +1,6 @@
+import java.util.Comparator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 /**
  * Interface for a binary search tree.
  * 
@@ -18,4 +21,21 @@ public interface BSTInterface<T> {
      * @param toInsert a value (object) to insert into the tree.
      */
     void insert(T toInsert);
+
+    /**
+     * Finds the value equal to the key, or inserts a new one if absent,
+     * with a single traversal of the tree.
+     * @param key value (object) to look for
+     * @param ifAbsent creates the value to insert from the key if absent,
+     *        the created value must be equal to the key in tree order
+     * @param ifPresent updates the value already in the tree if present
+     * @return the value (object) in the tree after the call
+     */
+    T upsert(T key, Function<? super T, ? extends T> ifAbsent, Consumer<? super T> ifPresent);
+
+    /**
+     * Gives the ordering of the tree.
+     * @return the comparator of the tree, null for natural order
+     */
+    Comparator<T> comparator();
 }
@@ -0,0 +1,508 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+/**
+ * @author Dhanush Venkataramu
+ * Class for a B+-tree with the search, insert and iteration operations of
+ * BST, for very large vocabularies. Each node holds up to order sorted
+ * elements in one array, so a lookup reads about log(n) / log(order)
+ * nodes instead of log2(n), and binary searches each node within a few
+ * cache lines of references. Elements are kept in the leaves only, inner
+ * nodes hold copies of the first element of the subtrees right of them,
+ * and the leaves are linked in order so a scan never goes back up the
+ * tree.
+ *
+ * Nodes are split in half when they overflow, so every node but the root
+ * is at least half full and all leaves are at the same depth.
+ * @param <T> specifies the generic for class BTree.
+ */
+public class BTree<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T> {
+    /**
+     * Default maximum number of elements of a node.
+     */
+    public static final int DEFAULT_ORDER = 64;
+    /**
+     * Maximum number of elements of a leaf, and of separators of an
+     * inner node.
+     */
+    private final int order;
+    /**
+     * Comparator instance variable of the tree, null for natural order.
+     */
+    private final Comparator<T> comparator;
+    /**
+     * Instance variable root of the tree, a leaf while height is 0.
+     */
+    private Node root;
+    /**
+     * Number of inner levels above the leaves.
+     */
+    private int height;
+    /**
+     * Number of elements.
+     */
+    private int count;
+    /**
+     * Reusable array holding the inner nodes on the current insertion
+     * path, so a split can walk back up without recursion.
+     */
+    private Inner[] path = new Inner[8];
+    /**
+     * Reusable array holding the child taken at each node of the path.
+     */
+    private int[] pathChild = new int[8];
+    /**
+     * Constructor for building a tree with natural order.
+     */
+    public BTree() {
+        this(null);
+    }
+    /**
+     * Parameterized constructor for building a tree with alternative order.
+     * @param comp specifies the comparator for the tree.
+     */
+    public BTree(Comparator<T> comp) {
+        this(comp, DEFAULT_ORDER);
+    }
+    /**
+     * Parameterized constructor for building a tree with alternative order
+     * and a given node size.
+     * @param comp specifies the comparator for the tree, null for natural
+     * order.
+     * @param nodeOrder specifies the maximum number of elements of a node.
+     * @throws IllegalArgumentException if nodeOrder is less than 3.
+     */
+    public BTree(Comparator<T> comp, int nodeOrder) {
+        if (nodeOrder < 3) {
+            throw new IllegalArgumentException("Order: " + nodeOrder);
+        }
+        comparator = comp;
+        order = nodeOrder;
+        root = new Leaf(order);
+    }
+    /**
+     * Instance method to return the comparator.
+     * @return the comparator of the tree.
+     */
+    @Override
+    public Comparator<T> comparator() {
+        return comparator;
+    }
+    /**
+     * Instance method to get the maximum number of elements of a node.
+     * @return the order of the tree.
+     */
+    public int getOrder() {
+        return order;
+    }
+    /**
+     * Instance method to get height of the tree, the number of levels
+     * below the root, 0 if the root is a leaf.
+     * @return the height of the tree.
+     */
+    public int getHeight() {
+        return height;
+    }
+    /**
+     * Instance method to get number of elements in the tree, as
+     * BST.getNumberOfNodes() does.
+     * @return number of elements.
+     */
+    public int getNumberOfNodes() {
+        return count;
+    }
+    /**
+     * Instance method to get search element in the tree.
+     * return element if found, null otherwise.
+     */
+    @Override
+    public T search(T toSearch) {
+        Node node = root;
+        for (int level = 0; level < height; level++) {
+            Inner inner = (Inner) node;
+            node = inner.children[childIndex(inner, toSearch)];
+        }
+        int pos = leafIndex((Leaf) node, toSearch);
+        if (pos < 0) {
+            return null;
+        }
+        return element(node, pos);
+    }
+    /**
+     * Instance method to get insert element in the tree.
+     * No duplicates allowed.
+     */
+    @Override
+    public void insert(T toInsert) {
+        upsert(toInsert, null, null);
+    }
+    /**
+     * Instance method to find or insert element in the tree in one
+     * traversal.
+     *
+     * Loop Details:
+     * Descend from the root to the leaf that holds or would hold the key,
+     * remembering the inner nodes passed and the child taken. If the key
+     * is in the leaf the element found is updated. Else the new element
+     * is put in place in the leaf, and while a node overflows it is split
+     * in half and the first key of the right half is put in the parent,
+     * walking back up the path. A split root gets a new root above it.
+     */
+    @Override
+    public T upsert(T key, Function<? super T, ? extends T> ifAbsent,
+                    Consumer<? super T> ifPresent) {
+        Node node = root;
+        for (int level = 0; level < height; level++) {
+            Inner inner = (Inner) node;
+            int child = childIndex(inner, key);
+            path[level] = inner;
+            pathChild[level] = child;
+            node = inner.children[child];
+        }
+        Leaf leaf = (Leaf) node;
+        int pos = leafIndex(leaf, key);
+        if (pos >= 0) {
+            T res = element(leaf, pos);
+            if (ifPresent != null) {
+                ifPresent.accept(res);
+            }
+            return res;
+        }
+        T res = ifAbsent == null ? key : ifAbsent.apply(key);
+        insertAt(leaf, -pos - 1, res);
+        count++;
+        if (leaf.count <= order) {
+            return res;
+        }
+        Node right = splitLeaf(leaf);
+        Object separator = right.keys[0];
+        for (int level = height - 1; level >= 0; level--) {
+            Inner parent = path[level];
+            insertChild(parent, pathChild[level], separator, right);
+            if (parent.count <= order) {
+                return res;
+            }
+            separator = parent.keys[parent.count / 2];
+            right = splitInner(parent);
+        }
+        Inner newRoot = new Inner(order);
+        newRoot.keys[0] = separator;
+        newRoot.children[0] = root;
+        newRoot.children[1] = right;
+        newRoot.count = 1;
+        root = newRoot;
+        height++;
+        if (height == path.length) {
+            path = Arrays.copyOf(path, height * 2);
+            pathChild = Arrays.copyOf(pathChild, height * 2);
+        }
+        return res;
+    }
+    /**
+     * Return an iterator to traverse through the tree in order, along the
+     * linked leaves.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new LeafIterator(null, null);
+    }
+    /**
+     * Return an iterator to traverse through the tree in order, starting
+     * at the first element not less than from.
+     * @param from specifies the lower bound (inclusive).
+     * @return the iterator, positioned in O(height) node searches.
+     */
+    public Iterator<T> iterator(T from) {
+        return new LeafIterator(from, null);
+    }
+    /**
+     * Instance method to view the elements from a lower bound up to an
+     * upper bound, in tree order.
+     * @param from specifies the lower bound (inclusive).
+     * @param to specifies the upper bound (exclusive).
+     * @return iterable over the elements in [from, to).
+     */
+    public Iterable<T> range(T from, T to) {
+        return () -> new LeafIterator(from, to);
+    }
+    /**
+     * Instance method to view the elements less than an upper bound,
+     * in tree order.
+     * @param to specifies the upper bound (exclusive).
+     * @return iterable over the elements less than to.
+     */
+    public Iterable<T> headSet(T to) {
+        return () -> new LeafIterator(null, to);
+    }
+    /**
+     * Instance method to view the elements not less than a lower bound,
+     * in tree order.
+     * @param from specifies the lower bound (inclusive).
+     * @return iterable over the elements not less than from.
+     */
+    public Iterable<T> tailSet(T from) {
+        return () -> new LeafIterator(from, null);
+    }
+    /**
+     * Helper method to find the child of an inner node to descend to.
+     * @param inner specifies the inner node.
+     * @param key specifies the key being searched.
+     * @return the index of the child, the number of separators not
+     * greater than the key.
+     *
+     * Loop Details:
+     * Binary search for the first separator greater than the key, keeping
+     * lo at a separator not greater than the key or at 0, and hi at a
+     * separator greater than the key or at the end.
+     */
+    private int childIndex(Inner inner, T key) {
+        int lo = 0;
+        int hi = inner.count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(key, element(inner, mid)) < 0) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+    /**
+     * Helper method to find a key in a leaf.
+     * @param leaf specifies the leaf.
+     * @param key specifies the key being searched.
+     * @return the position of the key if found, else -(insertion point) - 1,
+     * as Arrays.binarySearch() returns.
+     */
+    private int leafIndex(Leaf leaf, T key) {
+        int lo = 0;
+        int hi = leaf.count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int compareResult = compare(key, element(leaf, mid));
+            if (compareResult == 0) {
+                return mid;
+            }
+            if (compareResult < 0) {
+                hi = mid - 1;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return -lo - 1;
+    }
+    /**
+     * Helper method to put an element in a leaf, shifting the elements
+     * after it. The key array has room for one element over the order.
+     * @param leaf specifies the leaf.
+     * @param pos specifies the position of the element.
+     * @param data specifies the element.
+     */
+    private void insertAt(Leaf leaf, int pos, T data) {
+        System.arraycopy(leaf.keys, pos, leaf.keys, pos + 1, leaf.count - pos);
+        leaf.keys[pos] = data;
+        leaf.count++;
+    }
+    /**
+     * Helper method to put a separator and the child right of it in an
+     * inner node, shifting those after them. The arrays have room for one
+     * more over the order.
+     * @param inner specifies the inner node.
+     * @param child specifies the index of the child that was split.
+     * @param separator specifies the first key of the new child.
+     * @param right specifies the new child, right of the split one.
+     */
+    private void insertChild(Inner inner, int child, Object separator, Node right) {
+        System.arraycopy(inner.keys, child, inner.keys, child + 1, inner.count - child);
+        System.arraycopy(inner.children, child + 1, inner.children, child + 2,
+                         inner.count - child);
+        inner.keys[child] = separator;
+        inner.children[child + 1] = right;
+        inner.count++;
+    }
+    /**
+     * Helper method to move the upper half of an overflowing leaf to a new
+     * leaf linked after it.
+     * @param leaf specifies the leaf.
+     * @return the new leaf.
+     */
+    private Leaf splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf(order);
+        int mid = leaf.count / 2;
+        right.count = leaf.count - mid;
+        System.arraycopy(leaf.keys, mid, right.keys, 0, right.count);
+        Arrays.fill(leaf.keys, mid, leaf.count, null);
+        leaf.count = mid;
+        right.next = leaf.next;
+        leaf.next = right;
+        return right;
+    }
+    /**
+     * Helper method to move the upper half of an overflowing inner node to
+     * a new inner node. The middle separator moves up to the parent, so
+     * it is in neither half.
+     * @param inner specifies the inner node.
+     * @return the new inner node.
+     */
+    private Inner splitInner(Inner inner) {
+        Inner right = new Inner(order);
+        int mid = inner.count / 2;
+        right.count = inner.count - mid - 1;
+        System.arraycopy(inner.keys, mid + 1, right.keys, 0, right.count);
+        System.arraycopy(inner.children, mid + 1, right.children, 0, right.count + 1);
+        Arrays.fill(inner.keys, mid, inner.count, null);
+        Arrays.fill(inner.children, mid + 1, inner.count + 1, null);
+        inner.count = mid;
+        return right;
+    }
+    /**
+     * Helper method to get an element or separator of a node.
+     * @param node specifies the node.
+     * @param pos specifies the position in the node.
+     * @return the element.
+     */
+    @SuppressWarnings("unchecked")
+    private T element(Node node, int pos) {
+        return (T) node.keys[pos];
+    }
+    /**
+     * Helper method to compare two elements in tree order.
+     * @param a specifies the first element.
+     * @param b specifies the second element.
+     * @return negative, zero or positive as a is less, equal or greater.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null) {
+            return a.compareTo(b);
+        }
+        return comparator.compare(a, b);
+    }
+    /**
+     * Private nested class to iterate the leaves in order.
+     */
+    private final class LeafIterator implements Iterator<T> {
+        /**
+         * Leaf holding the next element, null at the end.
+         */
+        private Leaf leaf;
+        /**
+         * Position of the next element in the leaf.
+         */
+        private int pos;
+        /**
+         * upper bound (exclusive) of the iteration, null if unbounded.
+         */
+        private final T upper;
+        /**
+         * constructor for nested iterator class.
+         * @param from specifies the lower bound (inclusive), null if
+         * unbounded.
+         * @param to specifies the upper bound (exclusive), null if
+         * unbounded.
+         */
+        private LeafIterator(T from, T to) {
+            upper = to;
+            Node node = root;
+            for (int level = 0; level < height; level++) {
+                Inner inner = (Inner) node;
+                node = inner.children[from == null ? 0 : childIndex(inner, from)];
+            }
+            leaf = (Leaf) node;
+            if (from != null) {
+                pos = leafIndex(leaf, from);
+                if (pos < 0) {
+                    pos = -pos - 1;
+                }
+            }
+            skipEmpty();
+        }
+        /**
+         * Method to move to the next leaf once the current one is done.
+         */
+        private void skipEmpty() {
+            while (leaf != null && pos == leaf.count) {
+                leaf = leaf.next;
+                pos = 0;
+            }
+        }
+        /**
+         * Implementation of hasNext() method.
+         * Returns if there are any elements left, before the upper bound.
+         */
+        @Override
+        public boolean hasNext() {
+            return leaf != null && (upper == null || compare(element(leaf, pos), upper) < 0);
+        }
+        /**
+         * Implementation of next() method.
+         */
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T res = element(leaf, pos++);
+            skipEmpty();
+            return res;
+        }
+    }
+    /**
+     * Private nested class for a node, its sorted keys in one array.
+     */
+    private abstract static class Node {
+        /**
+         * Sorted elements of a leaf, or separators of an inner node, with
+         * room for one over the order before a split.
+         */
+        final Object[] keys;
+        /**
+         * Number of keys in use.
+         */
+        int count;
+        /**
+         * Constructor for a node.
+         * @param order specifies the maximum number of keys.
+         */
+        Node(int order) {
+            keys = new Object[order + 1];
+        }
+    }
+    /**
+     * Private nested class for a leaf, holding elements.
+     */
+    private static final class Leaf extends Node {
+        /**
+         * Next leaf in order, null for the last one.
+         */
+        Leaf next;
+        /**
+         * Constructor for a leaf.
+         * @param order specifies the maximum number of elements.
+         */
+        Leaf(int order) {
+            super(order);
+        }
+    }
+    /**
+     * Private nested class for an inner node, child i holding the elements
+     * from separator i - 1 (inclusive) to separator i (exclusive).
+     */
+    private static final class Inner extends Node {
+        /**
+         * Children of the node, one more than the separators.
+         */
+        final Node[] children;
+        /**
+         * Constructor for an inner node.
+         * @param order specifies the maximum number of separators.
+         */
+        Inner(int order) {
+            super(order);
+            children = new Node[order + 2];
+        }
+    }
+}
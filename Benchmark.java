@@ -0,0 +1,820 @@
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+/**
+ * @author Dhanush Venkataramu
+ * Class for benchmarking the hot paths of the trees and of Index on
+ * synthetic corpora, run with
+ * <pre>
+ * java Benchmark [tokens] [vocabulary] [iterations] [max vocabulary] [max threads]
+ * </pre>
+ * Each corpus is a stream of tokens drawn from a vocabulary of distinct
+ * mixed-case words: Zipfian (s = 1), uniform random, sorted and reverse
+ * sorted (the Zipfian stream in alphabetical order, either way). The
+ * corpora are generated with fixed seeds, so runs compare. A corpus is
+ * kept as one int per token, the position of its word, and only one
+ * corpus is in memory at a time; Index reads it as text generated as it
+ * reads. So 100M tokens take about 400 MB, and run with -Xmx1g.
+ *
+ * Each benchmark runs once to warm up, then the given number of times,
+ * and the fastest run is reported: throughput in operations per second
+ * (a token, or an element for iteration and sorting), the bytes the
+ * benchmark thread allocated per operation and per second, and the
+ * height of the tree used. A plain BST on a sorted corpus degenerates to
+ * a list and is skipped.
+ *
+ * Lookup latency is then measured as the vocabulary grows, by powers of
+ * ten up to the max vocabulary: the average time of an exact search for
+ * a random word, in a balanced BST, a hashed BST and a BTree.
+ *
+ * Last, ConcurrentBST is measured with 1 to the max number of threads,
+ * doubling: threads counting their shares of the Zipfian corpus into one
+ * tree, threads searching their shares of it in a full tree, and one
+ * thread counting while the others search until it is done. Throughput
+ * is in operations per second over all threads, tokens counted plus
+ * searches for the mixed run, and speedup is the ingest throughput over
+ * that of one thread. Allocation is not reported, as it is only measured
+ * per thread.
+ *
+ * workload() and sharedWorkload() give the same benchmarks to the JMH
+ * module in jmh/, which cannot name classes of the default package.
+ */
+public final class Benchmark {
+    /**
+     * Default number of tokens per corpus.
+     */
+    private static final int DEFAULT_TOKENS = 1000000;
+    /**
+     * Default number of distinct words per corpus.
+     */
+    private static final int DEFAULT_VOCABULARY = 50000;
+    /**
+     * Default number of measured runs per benchmark.
+     */
+    private static final int DEFAULT_ITERATIONS = 5;
+    /**
+     * Default largest vocabulary of the lookup latency benchmark.
+     */
+    private static final int DEFAULT_MAX_VOCABULARY = 1000000;
+    /**
+     * Default largest number of threads of the concurrent benchmark.
+     */
+    private static final int DEFAULT_MAX_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    /**
+     * Number of searches per run of the lookup latency benchmark.
+     */
+    private static final int LOOKUPS = 1000000;
+    /**
+     * Number of tokens per line of a corpus.
+     */
+    private static final int TOKENS_PER_LINE = 10;
+    /**
+     * Seed of the corpus generator.
+     */
+    private static final long SEED = 42;
+    /**
+     * Names of the corpora, in the order run.
+     */
+    private static final String[] CORPORA = {"zipfian", "uniform", "sorted", "reverse"};
+    /**
+     * Names of the benchmarks run on each corpus, in the order run.
+     */
+    private static final String[] BENCHMARKS = {
+        "BST.insert plain", "BST.search plain", "BST.insert balanced", "BST.search balanced",
+        "BST.search hashed", "BST.iterator balanced", "ArenaBST.insert balanced", "BTree.insert",
+        "Index.buildIndex natural", "Index.buildIndex IgnoreCase", "Index.sortByFrequency",
+        "Index.getHighestFrequency", "Index.buildIndex frequencies", "FrequencyIndex iterator"
+    };
+    /**
+     * Thread bean measuring allocation, null if not supported.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+    /**
+     * Results of the benchmarks, kept so the work is not optimized away.
+     */
+    private static volatile long sink;
+    /**
+     * Private constructor, the class only has static methods.
+     */
+    private Benchmark() {
+    }
+    /**
+     * Main method to run all benchmarks on all corpora.
+     * @param args specifies the number of tokens, the vocabulary size,
+     * the number of measured runs, the largest vocabulary of the lookup
+     * latency benchmark and the largest number of threads of the
+     * concurrent benchmark, each optional.
+     */
+    public static void main(String[] args) {
+        int tokens = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TOKENS;
+        int vocabulary = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_VOCABULARY;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+        int maxVocabulary = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_MAX_VOCABULARY;
+        int maxThreads = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_MAX_THREADS;
+        Random random = new Random(SEED);
+        String[] words = vocabulary(vocabulary, random);
+        System.out.printf("%d tokens, %d words, best of %d runs%n", tokens, vocabulary, iterations);
+        System.out.printf("%-9s %-28s %14s %10s %10s %7s%n",
+                          "corpus", "benchmark", "ops/s", "bytes/op", "MB/s", "height");
+        for (String corpus : CORPORA) {
+            run(corpus, new Workload(words, corpus(corpus, tokens, vocabulary)), iterations);
+        }
+        System.out.printf("%nlookup latency, best of %d runs of %d searches%n", iterations, LOOKUPS);
+        System.out.printf("%12s %14s %14s %14s %7s %7s%n",
+                          "vocabulary", "BST ns", "hashed ns", "BTree ns", "BST h", "BTree h");
+        for (int size = 1000; size <= maxVocabulary; size *= 10) {
+            lookups(size, iterations, random);
+        }
+        System.out.printf("%nConcurrentBST on the zipfian corpus, best of %d runs, %d cores%n",
+                          iterations, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%8s %14s %14s %14s %14s %7s%n",
+                          "threads", "ingest ops/s", "query ops/s", "mixed ops/s", "speedup", "height");
+        Workload zipf = new Workload(words, corpus("zipfian", tokens, vocabulary));
+        // A first pass with one thread warms the code up, so the row the
+        // speedups are relative to is not measured cold.
+        concurrent(zipf, 1, iterations, 0, false);
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            single = concurrent(zipf, threads, iterations, single, true);
+        }
+    }
+    /**
+     * Static method to get one benchmark of the harness on a corpus, for
+     * the JMH module.
+     * @param benchmark specifies the name of the benchmark, as printed.
+     * @param corpus specifies the name of the corpus: zipfian, uniform,
+     * sorted or reverse.
+     * @param tokens specifies the number of tokens of the corpus.
+     * @param vocabulary specifies the number of distinct words.
+     * @return two suppliers, the first running the benchmark once and
+     * returning the number of operations done, the second returning the
+     * height of the tree used.
+     * @throws IllegalArgumentException if the benchmark or corpus is
+     * unknown.
+     */
+    public static IntSupplier[] workload(String benchmark, String corpus, int tokens, int vocabulary) {
+        String[] words = vocabulary(vocabulary, new Random(SEED));
+        return new Workload(words, corpus(corpus, tokens, vocabulary)).bench(benchmark);
+    }
+    /**
+     * Static method to get the operations on a ConcurrentBST shared by
+     * all threads calling them, for the JMH module.
+     * @param corpus specifies the name of the corpus.
+     * @param tokens specifies the number of tokens of the corpus.
+     * @param vocabulary specifies the number of distinct words.
+     * @param filled specifies if the tree starts with the corpus counted
+     * into it, else it starts empty.
+     * @return two operations on the same tree, each given the position
+     * of a token, which may be past the end of the corpus to start it
+     * over: the first counts the token into the tree and returns 1, the
+     * second searches it and returns 1 if found, 0 otherwise.
+     * @throws IllegalArgumentException if the corpus is unknown.
+     */
+    public static IntUnaryOperator[] sharedWorkload(String corpus, int tokens, int vocabulary,
+                                                    boolean filled) {
+        String[] words = vocabulary(vocabulary, new Random(SEED));
+        Workload w = new Workload(words, corpus(corpus, tokens, vocabulary));
+        ConcurrentBST<Word> tree = new ConcurrentBST<Word>();
+        int n = w.ids.length;
+        IntUnaryOperator upsert = i -> {
+            tree.upsert(w.token(i % n), Benchmark::newCount, Benchmark::count);
+            return 1;
+        };
+        if (filled) {
+            for (int i = 0; i < n; i++) {
+                upsert.applyAsInt(i);
+            }
+        }
+        return new IntUnaryOperator[] {upsert, i -> tree.search(w.token(i % n)) != null ? 1 : 0};
+    }
+    /**
+     * Helper method to time ConcurrentBST with a number of threads, and
+     * print one row of results.
+     * @param corpus specifies the tokens.
+     * @param threads specifies the number of threads.
+     * @param iterations specifies the number of measured runs.
+     * @param single specifies the ingest throughput of one thread, 0 if
+     * this is the run with one thread.
+     * @param report specifies if the row is printed.
+     * @return the ingest throughput of one thread.
+     */
+    private static double concurrent(Workload corpus, int threads, int iterations, double single,
+                                     boolean report) {
+        int n = corpus.ids.length;
+        ConcurrentBST<Word>[] trees = newConcurrentTrees(iterations + 1);
+        int[] run = {0};
+        double ingest = parallel(threads, iterations, () -> run[0]++, () -> n, t -> {
+            ConcurrentBST<Word> tree = trees[run[0] - 1];
+            for (int i = t * n / threads; i < (t + 1) * n / threads; i++) {
+                tree.upsert(corpus.token(i), Benchmark::newCount, Benchmark::count);
+            }
+        });
+        ConcurrentBST<Word> full = trees[0];
+        double query = parallel(threads, iterations, () -> { }, () -> n, t -> {
+            int hits = 0;
+            for (int i = t * n / threads; i < (t + 1) * n / threads; i++) {
+                if (full.search(corpus.token(i)) != null) {
+                    hits++;
+                }
+            }
+            sink = hits;
+        });
+        ConcurrentBST<Word>[] mixedTrees = newConcurrentTrees(iterations + 1);
+        AtomicBoolean counting = new AtomicBoolean();
+        AtomicLong searches = new AtomicLong();
+        run[0] = 0;
+        // Thread 0 counts the whole corpus while the others search it over
+        // and over until the counting is done.
+        double mixed = parallel(threads, iterations, () -> {
+            run[0]++;
+            counting.set(true);
+            searches.set(0);
+        }, () -> n + searches.get(), t -> {
+            ConcurrentBST<Word> tree = mixedTrees[run[0] - 1];
+            if (t == 0) {
+                for (int i = 0; i < n; i++) {
+                    tree.upsert(corpus.token(i), Benchmark::newCount, Benchmark::count);
+                }
+                counting.set(false);
+                return;
+            }
+            long done = 0;
+            for (int i = t; counting.get(); i = i + 1 == n ? 0 : i + 1) {
+                tree.search(corpus.token(i));
+                done++;
+            }
+            searches.addAndGet(done);
+        });
+        if (single == 0) {
+            single = ingest;
+        }
+        if (report) {
+            System.out.printf("%8d %14.0f %14.0f %14.0f %14.2f %7d%n", threads, ingest, query, mixed,
+                              ingest / single, full.getHeight());
+        }
+        return single;
+    }
+    /**
+     * Helper method to create empty trees, one per run.
+     * @param count specifies the number of trees.
+     * @return the trees.
+     */
+    @SuppressWarnings("unchecked")
+    private static ConcurrentBST<Word>[] newConcurrentTrees(int count) {
+        ConcurrentBST<Word>[] res = (ConcurrentBST<Word>[]) new ConcurrentBST<?>[count];
+        for (int i = 0; i < count; i++) {
+            res[i] = new ConcurrentBST<Word>();
+        }
+        return res;
+    }
+    /**
+     * Helper method to create the counted word for the first token of a
+     * word, leaving the token as is.
+     * @param key specifies the token.
+     * @return the new word.
+     */
+    private static Word newCount(Word key) {
+        return new Word(key.getWord());
+    }
+    /**
+     * Helper method to count a further token of a word.
+     * @param existing specifies the counted word.
+     */
+    private static void count(Word existing) {
+        existing.setFrequency(existing.getFrequency() + 1);
+    }
+    /**
+     * Helper method to time a body run by several threads at once, once
+     * to warm up and then the given number of times.
+     * @param threads specifies the number of threads.
+     * @param iterations specifies the number of measured runs.
+     * @param before specifies what to do before each run.
+     * @param ops specifies the number of operations of the run just done.
+     * @param body specifies the body, given the number of its thread.
+     * @return the best throughput of a run, in operations per second.
+     */
+    private static double parallel(int threads, int iterations, Runnable before, LongSupplier ops,
+                                   IntConsumer body) {
+        double best = 0;
+        for (int i = 0; i <= iterations; i++) {
+            before.run();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                workers[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    body.accept(id);
+                });
+                workers[t].start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Thread w : workers) {
+                try {
+                    w.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            double rate = ops.getAsLong() / (Math.max(System.nanoTime() - begin, 1) / 1e9);
+            if (i > 0) {
+                best = Math.max(best, rate);
+            }
+        }
+        return best;
+    }
+    /**
+     * Helper method to time exact searches for random words of a
+     * vocabulary in each kind of tree, and print one row of results.
+     * @param size specifies the number of distinct words.
+     * @param iterations specifies the number of measured runs.
+     * @param random specifies the random generator.
+     */
+    private static void lookups(int size, int iterations, Random random) {
+        String[] words = vocabulary(size, random);
+        BST<Word> avl = new BST<Word>(true);
+        BST<Word> hashed = new BST<Word>(true);
+        hashed.setHasher(Word.hasher(null));
+        BTree<Word> btree = new BTree<Word>();
+        for (String w : words) {
+            Word word = new Word(w);
+            avl.insert(word);
+            hashed.insert(word);
+            btree.insert(word);
+        }
+        Word[] keys = new Word[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            keys[i] = new Word(words[random.nextInt(size)]);
+        }
+        System.out.printf("%12d %14.1f %14.1f %14.1f %7d %7d%n", size,
+                          latency(avl, keys, iterations), latency(hashed, keys, iterations),
+                          latency(btree, keys, iterations), avl.getHeight(), btree.getHeight());
+    }
+    /**
+     * Helper method to time exact searches in a tree.
+     * @param tree specifies the tree.
+     * @param keys specifies the words to search.
+     * @param iterations specifies the number of measured runs.
+     * @return the best average time of a search, in nanoseconds.
+     */
+    private static double latency(BSTInterface<Word> tree, Word[] keys, int iterations) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i <= iterations; i++) {
+            long start = System.nanoTime();
+            int hits = 0;
+            for (Word k : keys) {
+                if (tree.search(k) != null) {
+                    hits++;
+                }
+            }
+            long time = System.nanoTime() - start;
+            sink = hits;
+            if (i > 0) {
+                best = Math.min(best, time);
+            }
+        }
+        return best / (double) keys.length;
+    }
+    /**
+     * Helper method to run all benchmarks on one corpus. A plain BST on a
+     * sorted corpus is skipped.
+     * @param corpus specifies the name of the corpus.
+     * @param workload specifies the tokens of the corpus.
+     * @param iterations specifies the number of measured runs.
+     */
+    private static void run(String corpus, Workload workload, int iterations) {
+        boolean ordered = "sorted".equals(corpus) || "reverse".equals(corpus);
+        for (String name : BENCHMARKS) {
+            if (!ordered || !name.endsWith(" plain")) {
+                measure(corpus, name, iterations, workload.bench(name));
+            }
+        }
+    }
+    /**
+     * Helper method to time a benchmark and print its results.
+     * @param corpus specifies the name of the corpus.
+     * @param name specifies the name of the benchmark.
+     * @param iterations specifies the number of measured runs.
+     * @param bench specifies the benchmark, running once and returning
+     * its number of operations, and the height of its tree.
+     */
+    private static void measure(String corpus, String name, int iterations, IntSupplier[] bench) {
+        bench[0].getAsInt();
+        long bestTime = Long.MAX_VALUE;
+        long bestBytes = 0;
+        int ops = 0;
+        for (int i = 0; i < iterations; i++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            ops = bench[0].getAsInt();
+            long time = System.nanoTime() - start;
+            bytes = allocatedBytes() - bytes;
+            if (time < bestTime) {
+                bestTime = time;
+                bestBytes = bytes;
+            }
+        }
+        double seconds = Math.max(bestTime, 1) / 1e9;
+        System.out.printf("%-9s %-28s %14.0f %10.1f %10.1f %7d%n", corpus, name,
+                          ops / seconds, bestBytes / (double) Math.max(ops, 1),
+                          bestBytes / seconds / 1e6, bench[1].getAsInt());
+    }
+    /**
+     * Helper method to generate distinct words of 3 to 10 letters, a
+     * quarter of them capitalized.
+     * @param count specifies the number of words.
+     * @param random specifies the random generator.
+     * @return the words in alphabetical order.
+     */
+    private static String[] vocabulary(int count, Random random) {
+        Set<String> seen = new HashSet<String>();
+        String[] res = new String[count];
+        int n = 0;
+        char[] buf = new char[10];
+        while (n < count) {
+            int len = 3 + random.nextInt(8);
+            for (int i = 0; i < len; i++) {
+                buf[i] = (char) ('a' + random.nextInt(26));
+            }
+            if (random.nextInt(4) == 0) {
+                buf[0] = Character.toUpperCase(buf[0]);
+            }
+            String word = new String(buf, 0, len);
+            if (seen.add(word)) {
+                res[n++] = word;
+            }
+        }
+        Arrays.sort(res);
+        return res;
+    }
+    /**
+     * Helper method to draw tokens with a Zipfian distribution (s = 1),
+     * so the word of rank r is drawn in proportion to 1 / r. Ranks are
+     * given to the words in a random order.
+     * @param count specifies the number of tokens.
+     * @param vocabulary specifies the number of distinct words.
+     * @param random specifies the random generator.
+     * @return the tokens as positions in the vocabulary.
+     */
+    private static int[] zipfian(int count, int vocabulary, Random random) {
+        double[] cumulative = new double[vocabulary];
+        double sum = 0;
+        for (int r = 0; r < vocabulary; r++) {
+            sum += 1.0 / (r + 1);
+            cumulative[r] = sum;
+        }
+        int[] byRank = new int[vocabulary];
+        for (int i = 0; i < vocabulary; i++) {
+            int j = random.nextInt(i + 1);
+            byRank[i] = byRank[j];
+            byRank[j] = i;
+        }
+        int[] res = new int[count];
+        for (int i = 0; i < count; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            if (rank < 0) {
+                rank = -rank - 1;
+            }
+            res[i] = byRank[Math.min(rank, vocabulary - 1)];
+        }
+        return res;
+    }
+    /**
+     * Helper method to generate the tokens of a corpus, each corpus from
+     * a seed of its own.
+     * @param corpus specifies the name of the corpus.
+     * @param tokens specifies the number of tokens.
+     * @param vocabulary specifies the number of distinct words.
+     * @return the tokens as positions in the vocabulary.
+     * @throws IllegalArgumentException if the corpus is unknown.
+     */
+    private static int[] corpus(String corpus, int tokens, int vocabulary) {
+        if ("uniform".equals(corpus)) {
+            Random random = new Random(SEED + 1);
+            int[] res = new int[tokens];
+            for (int i = 0; i < tokens; i++) {
+                res[i] = random.nextInt(vocabulary);
+            }
+            return res;
+        }
+        int[] res = zipfian(tokens, vocabulary, new Random(SEED + 2));
+        if ("zipfian".equals(corpus)) {
+            return res;
+        }
+        Arrays.sort(res);
+        if ("sorted".equals(corpus)) {
+            return res;
+        }
+        if ("reverse".equals(corpus)) {
+            for (int i = 0, j = tokens - 1; i < j; i++, j--) {
+                int tmp = res[i];
+                res[i] = res[j];
+                res[j] = tmp;
+            }
+            return res;
+        }
+        throw new IllegalArgumentException("Unknown corpus: " + corpus);
+    }
+    /**
+     * Helper method to get the bytes allocated by the current thread.
+     * @return the bytes allocated so far, 0 if not measurable.
+     */
+    private static long allocatedBytes() {
+        if (THREADS == null) {
+            return 0;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    /**
+     * Helper method to get the thread bean if it measures allocation.
+     * @return the thread bean, null if allocation is not measurable.
+     */
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean res = (com.sun.management.ThreadMXBean) bean;
+            if (res.isThreadAllocatedMemorySupported()) {
+                res.setThreadAllocatedMemoryEnabled(true);
+                return res;
+            }
+        }
+        return null;
+    }
+    /**
+     * Private static nested class for the tokens of a corpus and the
+     * benchmarks run on them.
+     */
+    private static final class Workload {
+        /**
+         * Tokens as positions in the vocabulary.
+         */
+        private final int[] ids;
+        /**
+         * Word of each position in the vocabulary, shared by its tokens.
+         */
+        private final Word[] byId;
+        /**
+         * Latin1 bytes of each word of the vocabulary.
+         */
+        private final byte[][] bytes;
+        /**
+         * Constructor for the workload of a corpus.
+         * @param words specifies the vocabulary, in alphabetical order.
+         * @param tokens specifies the tokens as positions in the vocabulary.
+         */
+        Workload(String[] words, int[] tokens) {
+            ids = tokens;
+            byId = new Word[words.length];
+            bytes = new byte[words.length][];
+            for (int i = 0; i < words.length; i++) {
+                byId[i] = new Word(words[i]);
+                bytes[i] = words[i].getBytes(StandardCharsets.ISO_8859_1);
+            }
+        }
+        /**
+         * Instance method to get the word of a token.
+         * @param i specifies the position of the token.
+         * @return the word, shared by all tokens of it.
+         */
+        Word token(int i) {
+            return byId[ids[i]];
+        }
+        /**
+         * Instance method to insert all tokens into a tree.
+         * @param tree specifies the tree.
+         * @param <S> specifies the type of the tree.
+         * @return the tree.
+         */
+        <S extends BSTInterface<Word>> S fill(S tree) {
+            for (int id : ids) {
+                tree.insert(byId[id]);
+            }
+            return tree;
+        }
+        /**
+         * Instance method to get the text of the corpus as a stream.
+         * @return a stream generating the text as it is read.
+         */
+        InputStream text() {
+            return new TokenInputStream(bytes, ids);
+        }
+        /**
+         * Instance method to set up a benchmark. Trees searched, iterated
+         * or sorted are built here, outside of the runs.
+         * @param name specifies the name of the benchmark.
+         * @return two suppliers, the first running the benchmark once and
+         * returning its number of operations, the second returning the
+         * height of its tree.
+         * @throws IllegalArgumentException if the benchmark is unknown.
+         */
+        IntSupplier[] bench(String name) {
+            int n = ids.length;
+            int[] height = new int[1];
+            IntSupplier body;
+            switch (name) {
+            case "BST.insert plain":
+                body = () -> {
+                    height[0] = fill(new BST<Word>()).getHeight();
+                    return n;
+                };
+                break;
+            case "BST.search plain":
+                body = search(fill(new BST<Word>()), height);
+                break;
+            case "BST.insert balanced":
+                body = () -> {
+                    height[0] = fill(new BST<Word>(true)).getHeight();
+                    return n;
+                };
+                break;
+            case "BST.search balanced":
+                body = search(fill(new BST<Word>(true)), height);
+                break;
+            case "BST.search hashed":
+                BST<Word> hashed = new BST<Word>(true);
+                hashed.setHasher(Word.hasher(null));
+                body = search(fill(hashed), height);
+                break;
+            case "BST.iterator balanced":
+                BST<Word> avl = fill(new BST<Word>(true));
+                height[0] = avl.getHeight();
+                body = () -> {
+                    long sum = 0;
+                    for (Word w : avl) {
+                        sum += w.getFrequency();
+                    }
+                    sink = sum;
+                    return avl.getNumberOfNodes();
+                };
+                break;
+            case "ArenaBST.insert balanced":
+                body = () -> {
+                    height[0] = fill(new ArenaBST<Word>(true)).getHeight();
+                    return n;
+                };
+                break;
+            case "BTree.insert":
+                body = () -> {
+                    height[0] = fill(new BTree<Word>()).getHeight();
+                    return n;
+                };
+                break;
+            case "Index.buildIndex natural":
+                body = () -> {
+                    height[0] = new Index(true).buildIndex(text()).getHeight();
+                    return n;
+                };
+                break;
+            case "Index.buildIndex IgnoreCase":
+                body = () -> {
+                    height[0] = new Index(true).buildIndex(text(), new IgnoreCase()).getHeight();
+                    return n;
+                };
+                break;
+            case "Index.sortByFrequency":
+            case "Index.getHighestFrequency":
+                Index index = new Index(true);
+                BST<Word> tree = index.buildIndex(text());
+                height[0] = tree.getHeight();
+                boolean sort = name.equals("Index.sortByFrequency");
+                body = () -> {
+                    sink = sort ? index.sortByFrequency(tree).size()
+                                : index.getHighestFrequency(tree).size();
+                    return tree.getNumberOfNodes();
+                };
+                break;
+            case "Index.buildIndex frequencies":
+                body = () -> {
+                    height[0] = new Index(true).buildIndex(text(), null, new FrequencyIndex()).getHeight();
+                    return n;
+                };
+                break;
+            case "FrequencyIndex iterator":
+                BST<Word> counted = new Index(true).buildIndex(text());
+                height[0] = counted.getHeight();
+                FrequencyIndex frequencies = new FrequencyIndex();
+                frequencies.addAll(counted);
+                body = () -> {
+                    long sum = 0;
+                    for (Word w : frequencies) {
+                        sum += w.getFrequency();
+                    }
+                    sink = sum;
+                    return frequencies.size();
+                };
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown benchmark: " + name);
+            }
+            return new IntSupplier[] {body, () -> height[0]};
+        }
+        /**
+         * Helper method to build the body searching every token in a tree.
+         * @param tree specifies the tree, holding the tokens.
+         * @param height specifies where to keep the height of the tree.
+         * @return the body.
+         */
+        private IntSupplier search(BST<Word> tree, int[] height) {
+            height[0] = tree.getHeight();
+            return () -> {
+                int hits = 0;
+                for (int id : ids) {
+                    if (tree.search(byId[id]) != null) {
+                        hits++;
+                    }
+                }
+                sink = hits;
+                return ids.length;
+            };
+        }
+    }
+    /**
+     * Private static nested class for the text of a corpus, latin1 words
+     * separated by spaces with a fixed number of tokens per line, made as
+     * it is read so no copy of the text is kept.
+     */
+    private static final class TokenInputStream extends InputStream {
+        /**
+         * Latin1 bytes of each word of the vocabulary.
+         */
+        private final byte[][] bytes;
+        /**
+         * Tokens as positions in the vocabulary.
+         */
+        private final int[] ids;
+        /**
+         * Position of the token being read.
+         */
+        private int token;
+        /**
+         * Number of bytes of the current word read.
+         */
+        private int offset;
+        /**
+         * Constructor for the text of tokens.
+         * @param words specifies the bytes of each word.
+         * @param tokens specifies the tokens as positions in the vocabulary.
+         */
+        TokenInputStream(byte[][] words, int[] tokens) {
+            bytes = words;
+            ids = tokens;
+        }
+        /**
+         * Implementation of read() method.
+         */
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+        /**
+         * Implementation of read(byte[], int, int) method.
+         *
+         * Loop Details:
+         * Copy the rest of the current word, then its separator, and move
+         * to the next token, until the buffer is full or the tokens end.
+         */
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (token == ids.length) {
+                return -1;
+            }
+            int res = 0;
+            while (res < len && token < ids.length) {
+                byte[] word = bytes[ids[token]];
+                if (offset < word.length) {
+                    int n = Math.min(word.length - offset, len - res);
+                    System.arraycopy(word, offset, b, off + res, n);
+                    offset += n;
+                    res += n;
+                    continue;
+                }
+                b[off + res++] = (byte) ((token + 1) % TOKENS_PER_LINE == 0 ? '\n' : ' ');
+                token++;
+                offset = 0;
+            }
+            return res;
+        }
+    }
+}
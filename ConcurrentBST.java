@@ -0,0 +1,461 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+/**
+ * @author Dhanush Venkataramu
+ * Class for a thread-safe, self-balancing (AVL) BST, for trees searched
+ * and iterated by many threads while others insert.
+ *
+ * Reads are optimistic and take no lock: elements are never removed,
+ * so an element found is always a correct answer, and a miss is only
+ * trusted if no insert ran meanwhile, else the search is repeated under
+ * the read lock. Child links are volatile and a rotation never links a
+ * node below itself, so a reader racing a writer always terminates.
+ * Inserts take the write lock. Updates of an element already present
+ * only lock that element, so ingest threads counting existing words do
+ * not block each other or readers.
+ *
+ * Since updates run under the monitor of the element, an element with
+ * mutable state, such as a Word, must be read while holding its monitor,
+ * as in synchronized (word) { word.getIndex(); }, or its postings may
+ * be read half appended. With a copier given, search() and iterator()
+ * instead return copies made under the monitor, which readers may use
+ * without locking, as with the copier of PersistentBST.
+ * @param <T> specifies the generic for class ConcurrentBST.
+ */
+public class ConcurrentBST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T> {
+    /**
+     * Lock guarding the structure of the tree.
+     */
+    private final StampedLock lock = new StampedLock();
+    /**
+     * Comparator instance variable of the BST, null for natural order.
+     */
+    private final Comparator<T> comparator;
+    /**
+     * Instance variable copying an element before it is handed to a
+     * reader, null to hand out the element itself.
+     */
+    private final UnaryOperator<T> copier;
+    /**
+     * Instance variable root of the BST.
+     */
+    private volatile Node<T> root;
+    /**
+     * Reusable array holding the nodes on the current insertion path,
+     * only used under the write lock.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<T>[] path = (Node<T>[]) new Node<?>[32];
+    /**
+     * Constructor for building BST with natural order.
+     */
+    public ConcurrentBST() {
+        this(null);
+    }
+    /**
+     * Parameterized constructor for building BST with alternative order.
+     * @param comp specifies the comparator for BST.
+     */
+    public ConcurrentBST(Comparator<T> comp) {
+        this(comp, null);
+    }
+    /**
+     * Parameterized constructor for building BST with alternative order,
+     * handing readers copies of the elements.
+     * @param comp specifies the comparator for BST, null for natural order.
+     * @param copy specifies how to copy an element for a reader, null to
+     * hand out the element itself.
+     */
+    public ConcurrentBST(Comparator<T> comp, UnaryOperator<T> copy) {
+        comparator = comp;
+        copier = copy;
+    }
+    /**
+     * Instance method to return the comparator.
+     * @return the comparator of BST.
+     */
+    @Override
+    public Comparator<T> comparator() {
+        return comparator;
+    }
+    /**
+     * Instance method to get height of BST.
+     * @return 0 if tree is empty, height otherwise.
+     */
+    public int getHeight() {
+        long stamp = lock.tryOptimisticRead();
+        Node<T> node = root;
+        int res = node == null ? 0 : node.height;
+        if (lock.validate(stamp)) {
+            return res;
+        }
+        stamp = lock.readLock();
+        try {
+            return root == null ? 0 : root.height;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    /**
+     * Instance method to get number of nodes in BST.
+     * @return number of nodes.
+     */
+    public int getNumberOfNodes() {
+        long stamp = lock.tryOptimisticRead();
+        Node<T> node = root;
+        int res = node == null ? 0 : node.size;
+        if (lock.validate(stamp)) {
+            return res;
+        }
+        stamp = lock.readLock();
+        try {
+            return root == null ? 0 : root.size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    /**
+     * Instance method to search element in BST without locking,
+     * unless a miss raced an insert.
+     * return node data, or a copy of it if a copier is set, if found,
+     * null otherwise.
+     */
+    @Override
+    public T search(T toSearch) {
+        long stamp = lock.tryOptimisticRead();
+        Node<T> res = find(toSearch);
+        if (res != null) {
+            return read(res.data);
+        }
+        if (stamp != 0 && lock.validate(stamp)) {
+            return null;
+        }
+        stamp = lock.readLock();
+        try {
+            res = find(toSearch);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return res == null ? null : read(res.data);
+    }
+    /**
+     * Instance method to insert element in BST.
+     */
+    @Override
+    public void insert(T toInsert) {
+        upsert(toInsert, null, null);
+    }
+    /**
+     * Instance method to find or insert element in BST. The update of an
+     * element found runs while holding the element's monitor, the creation
+     * of a new one while holding the write lock.
+     */
+    @Override
+    public T upsert(T key, Function<? super T, ? extends T> ifAbsent,
+                    Consumer<? super T> ifPresent) {
+        Node<T> node = find(key);
+        if (node != null) {
+            return found(node.data, ifPresent);
+        }
+        long stamp = lock.writeLock();
+        try {
+            return insertLocked(key, ifAbsent, ifPresent);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    /**
+     * Return an iterator to traverse through BST inorder fashion.
+     * The iterator walks a snapshot of the elements taken under the read
+     * lock, so it is not affected by later inserts. The snapshot holds
+     * copies of the elements if a copier is set.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        ArrayList<T> snapshot;
+        long stamp = lock.readLock();
+        try {
+            Node<T> node = root;
+            snapshot = new ArrayList<T>(node == null ? 0 : node.size);
+            ArrayList<Node<T>> stack = new ArrayList<Node<T>>();
+            while (node != null || !stack.isEmpty()) {
+                while (node != null) {
+                    stack.add(node);
+                    node = node.left;
+                }
+                node = stack.remove(stack.size() - 1);
+                snapshot.add(read(node.data));
+                node = node.right;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return snapshot.iterator();
+    }
+    /**
+     * Helper method to compare two keys with the ordering of BST.
+     * @param a specifies the first key.
+     * @param b specifies the second key.
+     * @return negative, zero or positive as a is less, equal or greater.
+     */
+    private int compare(T a, T b) {
+        if (comparator == null) {
+            return a.compareTo(b);
+        }
+        return comparator.compare(a, b);
+    }
+    /**
+     * Helper Method to search BST, safe to run without a lock.
+     * @param toSearch specifies the key being searched.
+     * @return null if not found, node of BST if found.
+     */
+    private Node<T> find(T toSearch) {
+        Node<T> node = root;
+        while (node != null) {
+            int compareResult = compare(toSearch, node.data);
+            if (compareResult == 0) {
+                return node;
+            }
+            if (compareResult < 0) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return null;
+    }
+    /**
+     * Helper method to get an element for a reader.
+     * @param data specifies the element found.
+     * @return a copy of the element made under its monitor if a copier
+     * is set, the element otherwise.
+     */
+    private T read(T data) {
+        if (copier == null) {
+            return data;
+        }
+        synchronized (data) {
+            return copier.apply(data);
+        }
+    }
+    /**
+     * Helper method to update an element already in BST.
+     * @param data specifies the element found.
+     * @param ifPresent updates the element, null to leave it as is.
+     * @return the element.
+     */
+    private T found(T data, Consumer<? super T> ifPresent) {
+        if (ifPresent != null) {
+            synchronized (data) {
+                ifPresent.accept(data);
+            }
+        }
+        return data;
+    }
+    /**
+     * Helper Method to insert in BST keeping it height balanced (AVL),
+     * called with the write lock held.
+     * @param toInsert specifies the key being inserted.
+     * @param ifAbsent creates the data to insert, null to insert the key.
+     * @param ifPresent updates the data found, null to leave it as is.
+     * @return the data found or inserted.
+     *
+     * Loop Details:
+     * Descend remembering the nodes passed on the path, and link the new
+     * node, fully built, into the empty leaf node space we reach. Then
+     * walk the path back up, counting the new node in the sizes and
+     * rebalancing, and stop rebalancing once a subtree height is unchanged.
+     */
+    private T insertLocked(T toInsert, Function<? super T, ? extends T> ifAbsent,
+                           Consumer<? super T> ifPresent) {
+        if (root == null) {
+            root = newNode(toInsert, ifAbsent);
+            return root.data;
+        }
+        int depth = 0;
+        Node<T> node = root;
+        Node<T> inserted;
+        while (true) {
+            int compareResult = compare(toInsert, node.data);
+            if (compareResult == 0) {
+                return found(node.data, ifPresent);
+            }
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, path.length * 2);
+            }
+            path[depth++] = node;
+            if (compareResult < 0) {
+                if (node.left == null) {
+                    inserted = newNode(toInsert, ifAbsent);
+                    node.left = inserted;
+                    break;
+                }
+                node = node.left;
+            } else {
+                if (node.right == null) {
+                    inserted = newNode(toInsert, ifAbsent);
+                    node.right = inserted;
+                    break;
+                }
+                node = node.right;
+            }
+        }
+        for (int i = 0; i < depth; i++) {
+            path[i].size++;
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            Node<T> cur = path[i];
+            int oldHeight = cur.height;
+            Node<T> sub = rebalance(cur);
+            if (i == 0) {
+                root = sub;
+            } else if (path[i - 1].left == cur) {
+                path[i - 1].left = sub;
+            } else {
+                path[i - 1].right = sub;
+            }
+            if (sub.height == oldHeight) {
+                break;
+            }
+        }
+        return inserted.data;
+    }
+    /**
+     * Helper method to build the node for a key that is not in BST.
+     * @param toInsert specifies the key being inserted.
+     * @param ifAbsent creates the data to insert, null to insert the key.
+     * @return the new node.
+     */
+    private Node<T> newNode(T toInsert, Function<? super T, ? extends T> ifAbsent) {
+        if (ifAbsent == null) {
+            return new Node<T>(toInsert);
+        }
+        return new Node<T>(ifAbsent.apply(toInsert));
+    }
+    /**
+     * Helper method to restore the AVL property at a node whose
+     * subtrees differ in height by at most two.
+     * @param node specifies the node to rebalance.
+     * @return the root of the rebalanced subtree.
+     */
+    private Node<T> rebalance(Node<T> node) {
+        updateHeight(node);
+        int balance = heightOf(node.left) - heightOf(node.right);
+        if (balance > 1) {
+            if (heightOf(node.left.left) < heightOf(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (heightOf(node.right.right) < heightOf(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+    /**
+     * Helper method to rotate a subtree to the right. The node gives up
+     * its left link before the pivot links to the node, so readers never
+     * see a cycle.
+     * @param node specifies the root of the subtree.
+     * @return the new root of the subtree (the old left child).
+     */
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+    /**
+     * Helper method to rotate a subtree to the left. The node gives up
+     * its right link before the pivot links to the node, so readers never
+     * see a cycle.
+     * @param node specifies the root of the subtree.
+     * @return the new root of the subtree (the old right child).
+     */
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+    /**
+     * Helper method to recompute the height and size of a node from
+     * its children.
+     * @param node specifies the node to update.
+     */
+    private void updateHeight(Node<T> node) {
+        node.height = Math.max(heightOf(node.left), heightOf(node.right)) + 1;
+        node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
+    }
+    /**
+     * Helper method to get the stored height of a possibly empty subtree.
+     * @param node specifies the root of the subtree.
+     * @return -1 if empty, height of the subtree otherwise.
+     */
+    private int heightOf(Node<T> node) {
+        if (node == null) {
+            return -1;
+        }
+        return node.height;
+    }
+    /**
+     * Helper method to get the stored size of a possibly empty subtree.
+     * @param node specifies the root of the subtree.
+     * @return 0 if empty, number of nodes in the subtree otherwise.
+     */
+    private int sizeOf(Node<T> node) {
+        if (node == null) {
+            return 0;
+        }
+        return node.size;
+    }
+    /**
+     * Private static nested class for Node of BST.
+     * @param <T> specifies the generic of BST.
+     */
+    private static class Node<T> {
+        /**
+         * Instance variable of type T, final so readers without a lock
+         * always see it set.
+         */
+        private final T data;
+        /**
+         * left child of the node.
+         */
+        private volatile Node<T> left;
+        /**
+         * right child of the node.
+         */
+        private volatile Node<T> right;
+        /**
+         * height of the subtree rooted at the node.
+         */
+        private int height;
+        /**
+         * number of nodes in the subtree rooted at the node.
+         */
+        private int size;
+        /**
+         * Constructor to build a new node.
+         * @param d specifies the data to be stored.
+         */
+        Node(T d) {
+            data = d;
+            size = 1;
+        }
+    }
+
+}
@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test program to stress ConcurrentBST with writer threads counting words
+ * while reader threads search and iterate it.
+ *
+ * Each writer counts its own share of a fixed token stream, each token on
+ * a line of its own, so every word ends with a frequency equal to its
+ * number of lines. Readers search random words and take ordered snapshots
+ * while the writers run, through a tree handing out copies, and check
+ * that every copy is whole: its frequency matches its lines, and a
+ * snapshot is in order and no smaller than the one before. Once the
+ * writers are done, every word must hold exactly the count and lines of
+ * the stream.
+ * @author Dhanush Venkataramu
+ */
+public class ConcurrentStressDriver {
+
+    /**
+     * Default number of writer threads.
+     */
+    private static final int WRITERS = 4;
+    /**
+     * Default number of reader threads.
+     */
+    private static final int READERS = 4;
+    /**
+     * Default number of tokens counted by each writer.
+     */
+    private static final int TOKENS_PER_WRITER = 200_000;
+    /**
+     * Number of distinct words of the token stream.
+     */
+    private static final int VOCABULARY = 5_000;
+
+    /**
+     * Test program to run the writers and readers and check the tree.
+     * @param args arguments, optionally the number of writers, of readers
+     * and of tokens per writer.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : WRITERS;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : READERS;
+        int perWriter = args.length > 2 ? Integer.parseInt(args[2]) : TOKENS_PER_WRITER;
+        int tokens = writers * perWriter;
+        String[] words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = "w" + Integer.toString(i * 7919 % VOCABULARY, 36);
+        }
+        // Token i is on line i; the stream mixes words across writers so
+        // they update the same words at once.
+        int[] expected = new int[VOCABULARY];
+        for (int i = 0; i < tokens; i++) {
+            expected[wordOf(i)]++;
+        }
+
+        System.out.println("********STRESS " + writers + " writers, " + readers + " readers, "
+                           + tokens + " tokens************\n");
+        ConcurrentBST<Word> tree = new ConcurrentBST<>(null, Word::copy);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong readerChecks = new AtomicLong();
+        List<String> failures = new ArrayList<String>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writerThreads = new ArrayList<Thread>();
+        List<Thread> readerThreads = new ArrayList<Thread>();
+        for (int t = 0; t < writers; t++) {
+            int first = t * perWriter;
+            writerThreads.add(new Thread(() -> {
+                await(start);
+                for (int i = first; i < first + perWriter; i++) {
+                    int line = i;
+                    tree.upsert(new Word(words[wordOf(i)]), key -> {
+                        Word created = new Word(key.getWord());
+                        created.addToIndex(line);
+                        return created;
+                    }, existing -> {
+                        existing.setFrequency(existing.getFrequency() + 1);
+                        existing.addToIndex(line);
+                    });
+                }
+            }));
+        }
+        for (int t = 0; t < readers; t++) {
+            int seed = t;
+            readerThreads.add(new Thread(() -> {
+                await(start);
+                int lastSize = 0;
+                long checks = 0;
+                int next = seed;
+                while (writing.get()) {
+                    next = next * 1103515245 + 12345;
+                    Word found = tree.search(new Word(words[(next >>> 8) % VOCABULARY]));
+                    if (found != null && !whole(found)) {
+                        fail(failures, "search found " + found.getWord() + " torn");
+                    }
+                    if (++checks % 1000 == 0) {
+                        lastSize = checkSnapshot(tree, lastSize, failures);
+                    }
+                }
+                readerChecks.addAndGet(checks);
+            }));
+        }
+        long begin = System.nanoTime();
+        writerThreads.forEach(Thread::start);
+        readerThreads.forEach(Thread::start);
+        start.countDown();
+        for (Thread t : writerThreads) {
+            t.join();
+        }
+        writing.set(false);
+        for (Thread t : readerThreads) {
+            t.join();
+        }
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        System.out.println(readerChecks.get() + " searches by readers in " + millis + " ms");
+        synchronized (failures) {
+            check("no reader saw a torn word or an unordered snapshot " + failures,
+                  failures.isEmpty());
+        }
+
+        check("the number of nodes is " + tree.getNumberOfNodes(),
+              tree.getNumberOfNodes() == VOCABULARY);
+        int maxHeight = (int) (1.45 * Math.log(VOCABULARY + 2) / Math.log(2));
+        check("the height is " + tree.getHeight(), tree.getHeight() <= maxHeight);
+        boolean exact = true;
+        Word[] counted = new Word[VOCABULARY];
+        for (int w = 0; w < VOCABULARY && exact; w++) {
+            counted[w] = tree.search(new Word(words[w]));
+            exact = counted[w] != null && counted[w].getFrequency() == expected[w];
+        }
+        check("every word has its exact count", exact);
+        check("every word has exactly the lines of its tokens", exact && linesOf(counted, tokens));
+        check("the snapshot is in order", checkSnapshot(tree, VOCABULARY, failures) == VOCABULARY);
+    }
+
+    /**
+     * Helper method to get the word of a token of the stream.
+     * @param i specifies the position of the token.
+     * @return the position of its word in the vocabulary.
+     */
+    private static int wordOf(int i) {
+        return (int) ((i * 2654435761L >>> 7) % VOCABULARY);
+    }
+
+    /**
+     * Helper method to check that a word read concurrently is whole:
+     * each token is on a line of its own, so the frequency is the number
+     * of lines, and the lines are in increasing order.
+     * @param w specifies the word.
+     * @return true if the word is whole, false otherwise.
+     */
+    private static boolean whole(Word w) {
+        if (w.getFrequency() != w.postingCount()) {
+            return false;
+        }
+        int last = -1;
+        PrimitiveIterator.OfInt it = w.lineIterator();
+        while (it.hasNext()) {
+            int line = it.nextInt();
+            if (line <= last) {
+                return false;
+            }
+            last = line;
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to check that the words hold exactly the lines of
+     * their tokens in the stream.
+     * @param counted specifies the words, by position in the vocabulary.
+     * @param tokens specifies the number of tokens of the stream.
+     * @return true if the lines are exactly those of the stream.
+     *
+     * Loop Details:
+     * Walk the stream once, reading the next line of the word of each
+     * token, which must be the line of the token. Then no word may have
+     * lines left.
+     */
+    private static boolean linesOf(Word[] counted, int tokens) {
+        PrimitiveIterator.OfInt[] lines = new PrimitiveIterator.OfInt[counted.length];
+        for (int w = 0; w < counted.length; w++) {
+            lines[w] = counted[w].lineIterator();
+        }
+        for (int i = 0; i < tokens; i++) {
+            PrimitiveIterator.OfInt it = lines[wordOf(i)];
+            if (!it.hasNext() || it.nextInt() != i) {
+                return false;
+            }
+        }
+        for (PrimitiveIterator.OfInt it : lines) {
+            if (it.hasNext()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper method to check a snapshot of the tree: its words are in
+     * strictly increasing order and whole, and there are no fewer than
+     * in an earlier snapshot.
+     * @param tree specifies the tree.
+     * @param lastSize specifies the size of the earlier snapshot.
+     * @param failures specifies the list to add failures to.
+     * @return the size of the snapshot.
+     */
+    private static int checkSnapshot(ConcurrentBST<Word> tree, int lastSize, List<String> failures) {
+        int size = 0;
+        Word previous = null;
+        for (Word w : tree) {
+            if (previous != null && previous.compareTo(w) >= 0) {
+                fail(failures, "snapshot out of order at " + w.getWord());
+            }
+            if (!whole(w)) {
+                fail(failures, "snapshot holds " + w.getWord() + " torn");
+            }
+            previous = w;
+            size++;
+        }
+        if (size < lastSize) {
+            fail(failures, "snapshot shrank from " + lastSize + " to " + size);
+        }
+        return size;
+    }
+
+    /**
+     * Helper method to wait for the start of the run.
+     * @param start specifies the latch released at the start.
+     */
+    private static void await(CountDownLatch start) {
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper method to record a failure seen by a reader thread.
+     * @param failures specifies the list of failures.
+     * @param message specifies the failure.
+     */
+    private static void fail(List<String> failures, String message) {
+        synchronized (failures) {
+            if (failures.size() < 10) {
+                failures.add(message);
+            }
+        }
+    }
+
+    /**
+     * Helper method to print a check and stop if it failed.
+     * @param message specifies what was checked.
+     * @param passed specifies if the check passed.
+     * @throws IllegalStateException if the check failed.
+     */
+    private static void check(String message, boolean passed) {
+        if (!passed) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("ok: " + message);
+    }
+}
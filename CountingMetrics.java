@@ -0,0 +1,241 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * @author Dhanush Venkataramu
+ * Class for metrics kept as counters, to be read after or while indexing.
+ * Safe to share between threads, so it can measure a parallel build.
+ */
+public class CountingMetrics implements Metrics {
+    /**
+     * Number of depths with their own bucket in the histogram, deeper
+     * operations are counted in the last bucket.
+     */
+    public static final int DEPTH_BUCKETS = 64;
+    /**
+     * Number of searches.
+     */
+    private final LongAdder searches = new LongAdder();
+    /**
+     * Number of comparisons made by searches.
+     */
+    private final LongAdder searchComparisons = new LongAdder();
+    /**
+     * Number of inserts and upserts.
+     */
+    private final LongAdder inserts = new LongAdder();
+    /**
+     * Number of comparisons made by inserts and upserts.
+     */
+    private final LongAdder insertComparisons = new LongAdder();
+    /**
+     * Number of inserts and upserts that added a node.
+     */
+    private final LongAdder insertedNodes = new LongAdder();
+    /**
+     * Number of searches, inserts and upserts by depth reached.
+     */
+    private final AtomicLongArray depths = new AtomicLongArray(DEPTH_BUCKETS);
+    /**
+     * Number of words counted by index builds.
+     */
+    private final LongAdder tokens = new LongAdder();
+    /**
+     * Number of line breaks read by index builds.
+     */
+    private final LongAdder lines = new LongAdder();
+    /**
+     * Number of new words added by index builds.
+     */
+    private final LongAdder newWords = new LongAdder();
+    /**
+     * Total time of index builds.
+     */
+    private final LongAdder nanos = new LongAdder();
+    /**
+     * Time of index builds spent counting words into trees.
+     */
+    private final LongAdder treeNanos = new LongAdder();
+    /**
+     * Vocabulary growth, the totals of words counted and new words after
+     * each input, in the order the inputs ended.
+     */
+    private final List<long[]> growth = new ArrayList<long[]>();
+    /**
+     * Implementation of search() method, counts the search.
+     */
+    @Override
+    public void search(int comparisons, int depth) {
+        searches.increment();
+        searchComparisons.add(comparisons);
+        depths.incrementAndGet(Math.min(depth, DEPTH_BUCKETS - 1));
+    }
+    /**
+     * Implementation of insert() method, counts the insert.
+     */
+    @Override
+    public void insert(int comparisons, int depth, boolean inserted) {
+        inserts.increment();
+        insertComparisons.add(comparisons);
+        if (inserted) {
+            insertedNodes.increment();
+        }
+        depths.incrementAndGet(Math.min(depth, DEPTH_BUCKETS - 1));
+    }
+    /**
+     * Implementation of ingest() method, adds the input to the totals.
+     */
+    @Override
+    public void ingest(long tokenCount, long lineCount, long newWordCount, long time,
+                       long treeTime) {
+        tokens.add(tokenCount);
+        lines.add(lineCount);
+        newWords.add(newWordCount);
+        nanos.add(time);
+        treeNanos.add(treeTime);
+        synchronized (growth) {
+            long[] last = growth.isEmpty() ? new long[2] : growth.get(growth.size() - 1);
+            growth.add(new long[] {last[0] + tokenCount, last[1] + newWordCount});
+        }
+    }
+    /**
+     * Instance method to get the number of searches.
+     * @return the number of searches.
+     */
+    public long getSearches() {
+        return searches.sum();
+    }
+    /**
+     * Instance method to get the number of inserts and upserts.
+     * @return the number of inserts and upserts.
+     */
+    public long getInserts() {
+        return inserts.sum();
+    }
+    /**
+     * Instance method to get the number of inserts and upserts that
+     * added a node.
+     * @return the number of nodes added.
+     */
+    public long getInsertedNodes() {
+        return insertedNodes.sum();
+    }
+    /**
+     * Instance method to get the average number of comparisons of a search.
+     * @return the comparisons per search, 0 if none.
+     */
+    public double getComparisonsPerSearch() {
+        return ratio(searchComparisons.sum(), searches.sum());
+    }
+    /**
+     * Instance method to get the average number of comparisons of an
+     * insert or upsert.
+     * @return the comparisons per insert, 0 if none.
+     */
+    public double getComparisonsPerInsert() {
+        return ratio(insertComparisons.sum(), inserts.sum());
+    }
+    /**
+     * Instance method to get the depth histogram of all operations.
+     * @return a new array with the number of operations by depth reached,
+     * the last element counting all deeper ones.
+     */
+    public long[] getDepthHistogram() {
+        long[] res = new long[DEPTH_BUCKETS];
+        for (int i = 0; i < DEPTH_BUCKETS; i++) {
+            res[i] = depths.get(i);
+        }
+        return res;
+    }
+    /**
+     * Instance method to get the number of words counted by index builds.
+     * @return the number of words counted.
+     */
+    public long getTokens() {
+        return tokens.sum();
+    }
+    /**
+     * Instance method to get the number of line breaks read by index builds.
+     * @return the number of line breaks read.
+     */
+    public long getLines() {
+        return lines.sum();
+    }
+    /**
+     * Instance method to get the number of new words added by index builds.
+     * @return the number of new words.
+     */
+    public long getNewWords() {
+        return newWords.sum();
+    }
+    /**
+     * Instance method to get the words counted per second of index build.
+     * @return the tokens per second, 0 if nothing was indexed.
+     */
+    public double getTokensPerSecond() {
+        return ratio(tokens.sum() * 1e9, nanos.sum());
+    }
+    /**
+     * Instance method to get the line breaks read per second of index build.
+     * @return the lines per second, 0 if nothing was indexed.
+     */
+    public double getLinesPerSecond() {
+        return ratio(lines.sum() * 1e9, nanos.sum());
+    }
+    /**
+     * Instance method to get the time index builds spent reading and
+     * tokenizing.
+     * @return the time in nanoseconds.
+     */
+    public long getTokenizeNanos() {
+        return nanos.sum() - treeNanos.sum();
+    }
+    /**
+     * Instance method to get the time index builds spent counting words
+     * into trees.
+     * @return the time in nanoseconds.
+     */
+    public long getTreeNanos() {
+        return treeNanos.sum();
+    }
+    /**
+     * Instance method to get the vocabulary growth.
+     * @return a new list with, after each input, the total number of
+     * words counted and of new words, in the order the inputs ended.
+     */
+    public List<long[]> getVocabularyGrowth() {
+        synchronized (growth) {
+            List<long[]> res = new ArrayList<long[]>(growth.size());
+            for (long[] point : growth) {
+                res.add(point.clone());
+            }
+            return res;
+        }
+    }
+    /**
+     * Implementation of toString() method, a summary of the counters.
+     */
+    @Override
+    public String toString() {
+        return String.format("searches %d (%.2f comparisons each), inserts %d (%.2f comparisons each,"
+                             + " %d new), tokens %d (%.0f/s), lines %d (%.0f/s), new words %d,"
+                             + " tokenize %d ms, tree %d ms",
+                             getSearches(), getComparisonsPerSearch(), getInserts(),
+                             getComparisonsPerInsert(), getInsertedNodes(), getTokens(),
+                             getTokensPerSecond(), getLines(), getLinesPerSecond(), getNewWords(),
+                             getTokenizeNanos() / 1000000, getTreeNanos() / 1000000);
+    }
+    /**
+     * Helper method to divide two totals.
+     * @param total specifies the dividend.
+     * @param count specifies the divisor.
+     * @return the ratio, 0 if the divisor is 0.
+     */
+    private static double ratio(double total, double count) {
+        if (count == 0) {
+            return 0;
+        }
+        return total / count;
+    }
+}
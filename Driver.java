@@ -1,4 +1,6 @@
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Test program to test building index using BST.
@@ -14,9 +16,11 @@ public class Driver {
     public static void main(String[] args) throws IOException {
         Index index = new Index();
         String inputFile = "src/test.txt";
+        // Both trees are built from one read of the file.
+        List<BST<Word>> trees = index.buildIndexes(inputFile, Arrays.asList(null, new IgnoreCase()));
 
         System.out.println("********BUILD index tree: case sensitive************\n");
-        BST<Word> tree1 = index.buildIndex(inputFile);
+        BST<Word> tree1 = trees.get(0);
         System.out.println("the height is " + tree1.getHeight());
         System.out.println("the number of nodes is " + tree1.getNumberOfNodes());
         System.out.println();
@@ -39,7 +43,7 @@ public class Driver {
         System.out.println();
 
         System.out.println("*********BUILD index tree; all lowercases************\n");
-        BST<Word> tree2 = index.buildIndex(inputFile, new IgnoreCase());
+        BST<Word> tree2 = trees.get(1);
         System.out.println("the height is " + tree2.getHeight());
         System.out.println("the number of nodes is " + tree2.getNumberOfNodes());
         System.out.println();
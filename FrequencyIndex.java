@@ -0,0 +1,482 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+/**
+ * @author Dhanush Venkataramu
+ * Class for a secondary index of words in frequency order, kept up to
+ * date as words are counted, so frequency-ordered reports need no copy
+ * and sort of the tree. The words are iterated as Index.sortByFrequency()
+ * lists them: by descending frequency, and words of equal frequency in
+ * the order given, the order of their tree for the same result.
+ *
+ * The words are kept in one array by descending frequency, cut into
+ * buckets of equal frequency, linked from the highest frequency to the
+ * lowest. A word whose frequency grows by one is swapped with the first
+ * word of its bucket, which then becomes the last place of the bucket
+ * above, so it moves in O(1). A bucket left empty is unlinked, and a
+ * bucket holding only the word moving is reused for the new frequency.
+ * Each bucket sorts its part of the array when first read after a
+ * change and stays sorted until the next change, so reports between
+ * ingests cost only the words they return.
+ *
+ * A tree such as PersistentBST with Word::copy updates a copy of a word
+ * in place of the word. replace() hands the entry of the word over to
+ * the copy, keeping its place, before the copy is updated.
+ *
+ * An index is updated by one thread at a time, and not read while it
+ * is updated.
+ */
+public final class FrequencyIndex implements Iterable<Word> {
+    /**
+     * Initial length of the array of entries.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * Order of words of equal frequency, null for natural order.
+     */
+    private final Comparator<Word> order;
+    /**
+     * Entry of each word in the index.
+     */
+    private final IdentityHashMap<Word, Entry> entries = new IdentityHashMap<Word, Entry>();
+    /**
+     * Entries by descending frequency, each bucket a contiguous part.
+     */
+    private Entry[] slots = new Entry[INITIAL_CAPACITY];
+    /**
+     * Bucket of the highest frequency, at the start of the array, null
+     * if empty.
+     */
+    private Bucket highest;
+    /**
+     * Bucket of the lowest frequency, at the end of the array, null if
+     * empty.
+     */
+    private Bucket lowest;
+    /**
+     * Constructor for an empty index, words of equal frequency in
+     * natural order.
+     */
+    public FrequencyIndex() {
+        this(null);
+    }
+    /**
+     * Constructor for an empty index.
+     * @param comp specifies the order of words of equal frequency, null
+     * for natural order.
+     */
+    public FrequencyIndex(Comparator<Word> comp) {
+        order = comp;
+    }
+    /**
+     * Instance method to get the order of words of equal frequency.
+     * @return the comparator, null for natural order.
+     */
+    public Comparator<Word> comparator() {
+        return order;
+    }
+    /**
+     * Instance method to get number of words in the index.
+     * @return number of words.
+     */
+    public int size() {
+        return entries.size();
+    }
+    /**
+     * Instance method to check if a word is in the index.
+     * @param w specifies the word, compared by identity.
+     * @return true if the word itself is in the index, false otherwise.
+     */
+    public boolean contains(Word w) {
+        return entries.containsKey(w);
+    }
+    /**
+     * Instance method to put a copy of a word in its place in the index,
+     * for a tree that updates copies of words. The copy keeps the place
+     * of the word until update() moves it to its own frequency.
+     * @param w specifies the word in the index.
+     * @param copy specifies the copy replacing it, equal in tree order.
+     * @throws IllegalArgumentException if the word is not in the index.
+     */
+    public void replace(Word w, Word copy) {
+        Entry entry = entries.remove(w);
+        if (entry == null) {
+            throw new IllegalArgumentException("Not indexed: " + w.getWord());
+        }
+        entry.word = copy;
+        entries.put(copy, entry);
+    }
+    /**
+     * Instance method to add a word at its current frequency, or update it
+     * if already in the index.
+     * @param w specifies the word.
+     */
+    public void add(Word w) {
+        Entry entry = entries.get(w);
+        if (entry != null) {
+            move(entry, w.getFrequency());
+            return;
+        }
+        int n = entries.size();
+        entry = new Entry(w, n);
+        entries.put(w, entry);
+        if (n == slots.length) {
+            slots = Arrays.copyOf(slots, n * 2);
+        }
+        slots[n] = entry;
+        if (lowest == null) {
+            Bucket b = new Bucket(w.getFrequency(), n);
+            b.size = 1;
+            highest = b;
+            lowest = b;
+            entry.bucket = b;
+            return;
+        }
+        entry.bucket = lowest;
+        lowest.size++;
+        lowest.sorted = false;
+        move(entry, w.getFrequency());
+    }
+    /**
+     * Instance method to add words at their current frequencies, such as
+     * all the words of a tree. The words are added from the highest
+     * frequency down, so each takes O(1) after sorting.
+     * @param words specifies the words.
+     */
+    public void addAll(Iterable<Word> words) {
+        ArrayList<Word> sorted = new ArrayList<Word>();
+        for (Word cur : words) {
+            sorted.add(cur);
+        }
+        Collections.sort(sorted, new Frequency());
+        for (Word cur : sorted) {
+            add(cur);
+        }
+    }
+    /**
+     * Instance method to move a word to its current frequency after the
+     * frequency changed, in O(1) if it grew by one, else in the number of
+     * frequencies passed.
+     * @param w specifies the word.
+     * @throws IllegalArgumentException if the word is not in the index.
+     */
+    public void update(Word w) {
+        Entry entry = entries.get(w);
+        if (entry == null) {
+            throw new IllegalArgumentException("Not indexed: " + w.getWord());
+        }
+        move(entry, w.getFrequency());
+    }
+    /**
+     * Return an iterator over the words in frequency order.
+     */
+    @Override
+    public Iterator<Word> iterator() {
+        return new FrequencyIterator();
+    }
+    /**
+     * Instance method to get the words of the highest frequency.
+     * @return array list with the words of the highest frequency, in the
+     * order of words of equal frequency, as Index.getHighestFrequency().
+     */
+    public ArrayList<Word> getHighestFrequency() {
+        ArrayList<Word> res = new ArrayList<Word>();
+        if (highest != null) {
+            addBucket(res, highest, highest.size);
+        }
+        return res;
+    }
+    /**
+     * Instance method to get the words with a frequency of at least n.
+     * @param n specifies the lowest frequency wanted.
+     * @return array list with the words, in frequency order.
+     */
+    public ArrayList<Word> atLeast(int n) {
+        ArrayList<Word> res = new ArrayList<Word>();
+        for (Bucket b = highest; b != null && b.frequency >= n; b = b.lower) {
+            addBucket(res, b, b.size);
+        }
+        return res;
+    }
+    /**
+     * Instance method to get the n words of highest frequency.
+     * @param n specifies the number of words wanted.
+     * @return array list with the first n words in frequency order, as
+     * Index.topK() gives for the tree.
+     */
+    public ArrayList<Word> top(int n) {
+        ArrayList<Word> res = new ArrayList<Word>();
+        for (Bucket b = highest; b != null && res.size() < n; b = b.lower) {
+            addBucket(res, b, Math.min(b.size, n - res.size()));
+        }
+        return res;
+    }
+    /**
+     * Helper method to add the first words of a bucket to a list.
+     * @param res specifies the list.
+     * @param b specifies the bucket.
+     * @param n specifies the number of words to add.
+     */
+    private void addBucket(ArrayList<Word> res, Bucket b, int n) {
+        sort(b);
+        for (int i = b.start; i < b.start + n; i++) {
+            res.add(slots[i].word);
+        }
+    }
+    /**
+     * Helper method to sort the words of a bucket if it changed since
+     * last sorted.
+     * @param b specifies the bucket.
+     */
+    private void sort(Bucket b) {
+        if (b.sorted) {
+            return;
+        }
+        Comparator<Entry> byWord;
+        if (order == null) {
+            byWord = (e1, e2) -> e1.word.compareTo(e2.word);
+        } else {
+            byWord = (e1, e2) -> order.compare(e1.word, e2.word);
+        }
+        Arrays.sort(slots, b.start, b.start + b.size, byWord);
+        for (int i = b.start; i < b.start + b.size; i++) {
+            slots[i].pos = i;
+        }
+        b.sorted = true;
+    }
+    /**
+     * Helper method to move an entry to the bucket of a frequency.
+     * @param entry specifies the entry.
+     * @param frequency specifies the new frequency of its word.
+     *
+     * Loop Details:
+     * While the frequency is above that of the bucket of the entry, the
+     * entry is swapped with the first entry of its bucket and the bucket
+     * boundary moved past it. It then joins the bucket above if that one
+     * is not above the frequency, else it gets a bucket of its own at the
+     * boundary. A frequency below goes the same way down, through the
+     * last entry of each bucket. A bucket holding only the entry is given
+     * the frequency instead if no other bucket is between, so the top
+     * words, which often have a frequency of their own, move without
+     * allocating.
+     */
+    private void move(Entry entry, int frequency) {
+        Bucket b = entry.bucket;
+        while (b.frequency < frequency) {
+            Bucket up = b.higher;
+            if (b.size == 1 && (up == null || up.frequency > frequency)) {
+                b.frequency = frequency;
+                return;
+            }
+            swap(entry.pos, b.start);
+            b.start++;
+            b.size--;
+            b.sorted = false;
+            if (up == null || up.frequency > frequency) {
+                entry.bucket = newBucket(frequency, entry.pos, up, b);
+                return;
+            }
+            up.size++;
+            up.sorted = false;
+            entry.bucket = up;
+            if (b.size == 0) {
+                unlinkBucket(b);
+            }
+            b = up;
+        }
+        while (b.frequency > frequency) {
+            Bucket down = b.lower;
+            if (b.size == 1 && (down == null || down.frequency < frequency)) {
+                b.frequency = frequency;
+                return;
+            }
+            swap(entry.pos, b.start + b.size - 1);
+            b.size--;
+            b.sorted = false;
+            if (down == null || down.frequency < frequency) {
+                entry.bucket = newBucket(frequency, entry.pos, b, down);
+                return;
+            }
+            down.start--;
+            down.size++;
+            down.sorted = false;
+            entry.bucket = down;
+            if (b.size == 0) {
+                unlinkBucket(b);
+            }
+            b = down;
+        }
+    }
+    /**
+     * Helper method to swap two entries of the array.
+     * @param i specifies the position of the first entry.
+     * @param j specifies the position of the second entry.
+     */
+    private void swap(int i, int j) {
+        Entry a = slots[i];
+        Entry b = slots[j];
+        slots[i] = b;
+        slots[j] = a;
+        a.pos = j;
+        b.pos = i;
+    }
+    /**
+     * Helper method to create a bucket of one entry and link it between
+     * its neighbours.
+     * @param frequency specifies the frequency of the bucket.
+     * @param pos specifies the position of its entry.
+     * @param higher specifies the bucket above, null if highest.
+     * @param lower specifies the bucket below, null if lowest.
+     * @return the bucket.
+     */
+    private Bucket newBucket(int frequency, int pos, Bucket higher, Bucket lower) {
+        Bucket res = new Bucket(frequency, pos);
+        res.size = 1;
+        res.higher = higher;
+        res.lower = lower;
+        if (higher == null) {
+            highest = res;
+        } else {
+            higher.lower = res;
+        }
+        if (lower == null) {
+            lowest = res;
+        } else {
+            lower.higher = res;
+        }
+        return res;
+    }
+    /**
+     * Helper method to unlink an empty bucket from its neighbours.
+     * @param b specifies the bucket.
+     */
+    private void unlinkBucket(Bucket b) {
+        if (b.higher == null) {
+            highest = b.lower;
+        } else {
+            b.higher.lower = b.lower;
+        }
+        if (b.lower == null) {
+            lowest = b.higher;
+        } else {
+            b.lower.higher = b.higher;
+        }
+    }
+    /**
+     * Private nested class to iterate the buckets from the highest
+     * frequency down, sorting each when reached.
+     */
+    private final class FrequencyIterator implements Iterator<Word> {
+        /**
+         * Bucket of the next word, null at the end.
+         */
+        private Bucket bucket = highest;
+        /**
+         * Position of the next word in the array.
+         */
+        private int pos;
+        /**
+         * constructor for nested iterator class.
+         */
+        private FrequencyIterator() {
+            if (bucket != null) {
+                sort(bucket);
+            }
+        }
+        /**
+         * Implementation of hasNext() method.
+         */
+        @Override
+        public boolean hasNext() {
+            return bucket != null;
+        }
+        /**
+         * Implementation of next() method.
+         */
+        @Override
+        public Word next() {
+            if (bucket == null) {
+                throw new NoSuchElementException();
+            }
+            Word res = slots[pos++].word;
+            if (pos == bucket.start + bucket.size) {
+                bucket = bucket.lower;
+                if (bucket != null) {
+                    sort(bucket);
+                }
+            }
+            return res;
+        }
+    }
+    /**
+     * Private nested class for the part of the array holding the words of
+     * one frequency.
+     */
+    private static final class Bucket {
+        /**
+         * Frequency of the words.
+         */
+        private int frequency;
+        /**
+         * Position of the first entry in the array.
+         */
+        private int start;
+        /**
+         * Number of entries.
+         */
+        private int size;
+        /**
+         * Flag set while the entries are in the order of words of equal
+         * frequency.
+         */
+        private boolean sorted = true;
+        /**
+         * Bucket of the next higher frequency, null if highest.
+         */
+        private Bucket higher;
+        /**
+         * Bucket of the next lower frequency, null if lowest.
+         */
+        private Bucket lower;
+        /**
+         * Constructor for an empty bucket.
+         * @param f specifies the frequency.
+         * @param first specifies the position of the first entry.
+         */
+        private Bucket(int f, int first) {
+            frequency = f;
+            start = first;
+        }
+    }
+    /**
+     * Private nested class for a word and its place in the array.
+     */
+    private static final class Entry {
+        /**
+         * Word of the entry, replaced by its copy if the tree copies
+         * words to update them.
+         */
+        private Word word;
+        /**
+         * Position of the entry in the array.
+         */
+        private int pos;
+        /**
+         * Bucket holding the entry.
+         */
+        private Bucket bucket;
+        /**
+         * Constructor for an entry.
+         * @param w specifies the word.
+         * @param position specifies the position in the array.
+         */
+        private Entry(Word w, int position) {
+            word = w;
+            pos = position;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test program to check that a frequency index kept while counting
+ * lists the words of its tree as sortByFrequency() does, for a tree
+ * updating words in place and for one updating copies of them.
+ * @author Dhanush Venkataramu
+ */
+public class FrequencyIndexDriver {
+
+    /**
+     * Test program to count lines into trees with frequency indexes.
+     * @param args arguments, not used.
+     */
+    public static void main(String[] args) {
+        Index index = new Index();
+        List<String> batch1 = Arrays.asList("apple pear apple", "apple");
+        List<String> batch2 = Arrays.asList("pear plum apple", "plum pear pear");
+
+        System.out.println("********COUNT into a BST************\n");
+        BST<Word> tree = new BST<>(null, true);
+        FrequencyIndex frequencies = new FrequencyIndex();
+        int next = index.addLines(tree, 0, 1, batch1, frequencies);
+        index.addLines(tree, 0, next, batch2, frequencies);
+        checkIndex(index, tree, frequencies, "[apple 4 [1, 2, 3], pear 4 [1, 3, 4], plum 2 [3, 4]]");
+        System.out.println();
+
+        System.out.println("********COUNT into a PersistentBST of copies************\n");
+        PersistentBST<Word> persistent = new PersistentBST<>(null, Word::copy);
+        FrequencyIndex copied = new FrequencyIndex();
+        next = index.addLines(persistent, 0, 1, batch1, copied);
+        PersistentBST.Snapshot<Word> before = persistent.snapshot();
+        index.addLines(persistent, 0, next, batch2, copied);
+        checkIndex(index, persistent, copied, "[apple 4 [1, 2, 3], pear 4 [1, 3, 4], plum 2 [3, 4]]");
+        check("the snapshot before is " + index.sortByFrequency(before),
+              index.sortByFrequency(before).toString().equals("[apple 3 [1, 2], pear 1 [1]]"));
+    }
+
+    /**
+     * Helper method to check a frequency index against its tree.
+     * @param index specifies the index the tree was built with.
+     * @param tree specifies the tree.
+     * @param frequencies specifies the frequency index of the tree.
+     * @param expected specifies the words in frequency order, as printed.
+     */
+    private static void checkIndex(Index index, Iterable<Word> tree, FrequencyIndex frequencies,
+                                   String expected) {
+        ArrayList<Word> sorted = index.sortByFrequency(tree);
+        ArrayList<Word> listed = new ArrayList<Word>();
+        for (Word cur : frequencies) {
+            listed.add(cur);
+        }
+        check("the frequency index is " + listed, listed.toString().equals(expected));
+        check("the tree sorted by frequency is " + sorted, sorted.toString().equals(expected));
+        boolean same = listed.size() == sorted.size();
+        for (int i = 0; same && i < listed.size(); i++) {
+            same = listed.get(i) == sorted.get(i);
+        }
+        check("the frequency index holds the words of the tree", same);
+        check("the highest frequency is " + frequencies.getHighestFrequency(),
+              frequencies.getHighestFrequency().equals(index.getHighestFrequency(tree)));
+    }
+
+    /**
+     * Helper method to print a check and stop if it failed.
+     * @param message specifies what was checked.
+     * @param passed specifies if the check passed.
+     * @throws IllegalStateException if the check failed.
+     */
+    private static void check(String message, boolean passed) {
+        if (!passed) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("ok: " + message);
+    }
+}
@@ -6,11 +6,12 @@ import java.util.Comparator;
 public class IgnoreCase implements Comparator<Word> {
     /**
      * Implementation of compare() method.
-     * Comparison according to case insensitive string comparison.
+     * Comparison according to case insensitive string comparison,
+     * by the folded collation keys of the words first.
      */
     @Override
     public int compare(Word o1, Word o2) {
-        return o1.getWord().compareToIgnoreCase(o2.getWord());
+        return o1.compareToIgnoreCase(o2);
     }
 
 }
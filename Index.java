@@ -1,26 +1,97 @@
-import java.io.FileNotFoundException;
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
-import java.util.Scanner;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
 /**
  * @author Dhanush Venkataramu
  * Class for building indexes using BST.
  */
 public class Index {
     /**
-     * Instance flag variable to check need for conversion.
+     * Number of chunks per thread of a parallel build, more chunks than
+     * threads keep all threads busy when chunks take uneven time.
      */
-    private boolean convertLower = false;
+    private static final int CHUNKS_PER_THREAD = 4;
+    /**
+     * Smallest chunk size of a parallel build.
+     */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    /**
+     * Number of bytes read at once when looking for a line boundary.
+     */
+    private static final int LINE_SCAN_SIZE = 4096;
+    /**
+     * Widest range of frequencies, as a multiple of the number of words,
+     * that sortByFrequency sorts by counting.
+     */
+    private static final int COUNTING_SORT_RANGE_FACTOR = 4;
+    /**
+     * Largest initial capacity of the heap used by topK.
+     */
+    private static final int HEAP_CAPACITY = 1024;
+    /**
+     * Instance flag variable to build self-balancing index trees.
+     * Index keeps no other state, so one instance can build indexes
+     * from several threads at once.
+     */
+    private final boolean balanced;
+    /**
+     * Instance variable for the receiver of the measurements of index
+     * builds and of the trees built, null if not measuring.
+     */
+    private final Metrics metrics;
+    /**
+     * Constructor for Index building plain (unbalanced) BSTs.
+     */
+    public Index() {
+        this(false);
+    }
+    /**
+     * Constructor for Index optionally building self-balancing BSTs,
+     * which keep search and insert logarithmic for sorted input.
+     * @param isBalanced specifies if the index trees should be balanced.
+     */
+    public Index(boolean isBalanced) {
+        this(isBalanced, null);
+    }
+    /**
+     * Constructor for Index measuring its builds. The trees it builds
+     * report their operations to the same metrics, and every input
+     * indexed reports its words, lines, new words and timing once read.
+     * Words found in the term dictionary of a build are counted without
+     * a tree operation.
+     * @param isBalanced specifies if the index trees should be balanced.
+     * @param m specifies the receiver of the measurements, null for none.
+     */
+    public Index(boolean isBalanced, Metrics m) {
+        balanced = isBalanced;
+        metrics = m;
+    }
     /**
      * Instance method for building an index BST with  file, natural ordering.
      * @param fileName specifies the name of the file.
      * @return the index tree built.
      */
     public BST<Word> buildIndex(String fileName) {
-        BST<Word> myTree = new BST<Word>();
+        BST<Word> myTree = newTree(null);
         return buildTree(myTree, fileName);
     }
     /**
@@ -30,12 +101,134 @@ public class Index {
      * @return the index tree built.
      */
     public BST<Word> buildIndex(String fileName, Comparator<Word> comparator) {
-        BST<Word> myTree = new BST<Word>(comparator);
-        if (comparator instanceof IgnoreCase) {
-            convertLower = true;
-        }
+        BST<Word> myTree = newTree(comparator);
         return buildTree(myTree, fileName);
     }
+    /**
+     * Instance method for building an index BST with file, natural ordering.
+     * The file is memory-mapped, which suits multi-gigabyte files.
+     * @param path specifies the path of the file.
+     * @return the index tree built.
+     */
+    public BST<Word> buildIndex(Path path) {
+        return buildIndex(path, null);
+    }
+    /**
+     * Instance Method to build an index BST with file, alternative ordering.
+     * The file is memory-mapped, which suits multi-gigabyte files.
+     * @param path specifies the path of the file.
+     * @param comparator specifies the alternative ordering comparator.
+     * @return the index tree built.
+     */
+    public BST<Word> buildIndex(Path path, Comparator<Word> comparator) {
+        BST<Word> myTree = newTree(comparator);
+        return buildTree(myTree, path);
+    }
+    /**
+     * Instance method for building an index BST with channel, natural ordering.
+     * @param channel specifies the channel to read, it is not closed.
+     * @return the index tree built.
+     */
+    public BST<Word> buildIndex(ReadableByteChannel channel) {
+        return buildIndex(channel, null);
+    }
+    /**
+     * Instance Method to build an index BST with channel, alternative ordering.
+     * @param channel specifies the channel to read, it is not closed.
+     * @param comparator specifies the alternative ordering comparator.
+     * @return the index tree built.
+     */
+    public BST<Word> buildIndex(ReadableByteChannel channel, Comparator<Word> comparator) {
+        BST<Word> myTree = newTree(comparator);
+        try {
+            WordCounter counter = newCounter(myTree);
+            counter.tokenizer.tokenize(channel);
+            counter.done();
+        } catch (IOException e) {
+            System.err.println("Cannot read the input");
+        }
+        return myTree;
+    }
+    /**
+     * Instance method for building an index BST with stream, natural ordering.
+     * @param in specifies the stream to read, it is not closed.
+     * @return the index tree built.
+     */
+    public BST<Word> buildIndex(InputStream in) {
+        return buildIndex(in, null);
+    }
+    /**
+     * Instance Method to build an index BST with stream, alternative ordering.
+     * @param in specifies the stream to read, it is not closed.
+     * @param comparator specifies the alternative ordering comparator.
+     * @return the index tree built.
+     */
+    public BST<Word> buildIndex(InputStream in, Comparator<Word> comparator) {
+        return buildIndex(in, comparator, null);
+    }
+    /**
+     * Instance Method to build an index BST with stream, alternative
+     * ordering, together with its frequency index, like
+     * buildIndex(fileName, comparator, frequencies).
+     * @param in specifies the stream to read, it is not closed.
+     * @param comparator specifies the alternative ordering comparator,
+     * null for natural ordering.
+     * @param frequencies specifies an empty frequency index, null for none.
+     * @return the index tree built.
+     */
+    public BST<Word> buildIndex(InputStream in, Comparator<Word> comparator,
+                                FrequencyIndex frequencies) {
+        BST<Word> myTree = newTree(comparator);
+        try {
+            WordCounter counter = newCounter(myTree, 0, 0, frequencies);
+            counter.tokenizer.tokenize(in);
+            counter.done();
+        } catch (IOException e) {
+            System.err.println("Cannot read the input");
+        }
+        return myTree;
+    }
+    /**
+     * Instance Method to build an index BST with file, alternative ordering,
+     * in parallel on the common fork-join pool.
+     * @param path specifies the path of the file.
+     * @param comparator specifies the alternative ordering comparator,
+     * null for natural ordering.
+     * @return the index tree built, the same as buildIndex(path, comparator).
+     */
+    public BST<Word> buildIndexParallel(Path path, Comparator<Word> comparator) {
+        return buildIndexParallel(path, comparator, ForkJoinPool.commonPool());
+    }
+    /**
+     * Instance Method to build an index BST with file, alternative ordering,
+     * in parallel. The file is split into chunks at line boundaries, each
+     * chunk is indexed on the pool with its own lines numbered from 1, and
+     * neighbouring chunk indexes are combined by shifting the line indexes
+     * of the right one by the number of lines in the left one. New words
+     * of the right chunk are inserted in their order of first occurrence,
+     * so the tree built is the same as the one buildIndex builds.
+     * @param path specifies the path of the file.
+     * @param comparator specifies the alternative ordering comparator,
+     * null for natural ordering.
+     * @param pool specifies the pool to index the chunks on.
+     * @return the index tree built, the same as buildIndex(path, comparator).
+     */
+    public BST<Word> buildIndexParallel(Path path, Comparator<Word> comparator, ForkJoinPool pool) {
+        boolean lower = comparator instanceof IgnoreCase;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_THREAD,
+                                                   size / MIN_CHUNK_SIZE));
+            long[] bounds = splitAtLines(channel, size, count);
+            ChunkTask task = new ChunkTask(channel, bounds, 0, bounds.length - 1, comparator, lower);
+            return pool.invoke(task).tree;
+        } catch (NoSuchFileException e) {
+            System.err.println("Cannot find the file");
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Cannot read the file");
+        }
+        return newTree(comparator);
+    }
     /**
      * Instance method to re-build an index tree with arrayList elements.
      * @param list specifies the list with elements.
@@ -43,46 +236,274 @@ public class Index {
      * @return the re-built index tree.
      */
     public BST<Word> buildIndex(ArrayList<Word> list, Comparator<Word> comparator) {
-        BST<Word> res = new BST<Word>(comparator);
+        BST<Word> res = newTree(comparator);
         for (Word wr: list) {
             res.insert(wr);
         }
         return res;
     }
+    /**
+     * Instance Method to build an index BST with alternative ordering,
+     * together with its frequency index. The frequency index is kept up
+     * to date as words are counted, so the tree is listed in frequency
+     * order without sorting, and stays so as documents are added with
+     * addDocument(tree, docId, path, frequencies).
+     * @param fileName specifies the name of file.
+     * @param comparator specifies the alternative ordering comparator,
+     * null for natural ordering.
+     * @param frequencies specifies an empty frequency index, ordering
+     * words of equal frequency as the comparator does.
+     * @return the index tree built.
+     */
+    public BST<Word> buildIndex(String fileName, Comparator<Word> comparator,
+                                FrequencyIndex frequencies) {
+        BST<Word> myTree = newTree(comparator);
+        if (fileName != null) {
+            addDocument(myTree, 0, Paths.get(fileName), frequencies);
+        }
+        return myTree;
+    }
+    /**
+     * Instance method for building several index BSTs of one file, one per
+     * ordering, reading and tokenizing the file once. Each word found is
+     * counted into every tree, lowercased for IgnoreCase trees, so the
+     * trees are those buildIndex(fileName, comparator) builds.
+     * @param fileName specifies the name of the file.
+     * @param comparators specifies the orderings, null for natural ordering.
+     * @return the index trees built, in the order of the comparators.
+     */
+    public List<BST<Word>> buildIndexes(String fileName, List<Comparator<Word>> comparators) {
+        if (fileName == null) {
+            List<BST<Word>> res = new ArrayList<BST<Word>>(comparators.size());
+            for (Comparator<Word> comparator : comparators) {
+                res.add(newTree(comparator));
+            }
+            return res;
+        }
+        return buildIndexes(Paths.get(fileName), comparators);
+    }
+    /**
+     * Instance method for building several index BSTs of one memory-mapped
+     * file, one per ordering, like buildIndexes(fileName, comparators).
+     * @param path specifies the path of the file.
+     * @param comparators specifies the orderings, null for natural ordering.
+     * @return the index trees built, in the order of the comparators.
+     */
+    public List<BST<Word>> buildIndexes(Path path, List<Comparator<Word>> comparators) {
+        List<BST<Word>> res = new ArrayList<BST<Word>>(comparators.size());
+        WordCounter[] views = new WordCounter[comparators.size()];
+        for (int i = 0; i < views.length; i++) {
+            BST<Word> myTree = newTree(comparators.get(i));
+            res.add(myTree);
+            views[i] = newCounter(myTree);
+        }
+        MultiCounter counter = new MultiCounter(views);
+        if (tokenizeFile(counter.tokenizer, path)) {
+            counter.done();
+        }
+        return res;
+    }
+    /**
+     * Instance method for building an index with file into a given tree,
+     * any BSTInterface such as ArenaBST or BTree, in the order of the
+     * tree. Words are lowercased for an IgnoreCase tree.
+     * @param tree specifies the index tree to build into.
+     * @param fileName specifies the name of the file.
+     * @param <S> specifies the type of the tree.
+     * @return the index tree built.
+     */
+    public <S extends BSTInterface<Word>> S buildIndex(S tree, String fileName) {
+        addDocument(tree, 0, fileName);
+        return tree;
+    }
+    /**
+     * Instance method for building an index with a memory-mapped file into
+     * a given tree, like buildIndex(tree, fileName).
+     * @param tree specifies the index tree to build into.
+     * @param path specifies the path of the file.
+     * @param <S> specifies the type of the tree.
+     * @return the index tree built.
+     */
+    public <S extends BSTInterface<Word>> S buildIndex(S tree, Path path) {
+        addDocument(tree, 0, path);
+        return tree;
+    }
+    /**
+     * Instance method to add a file to an existing index as a document.
+     * The frequencies and postings of the words already in the tree are
+     * updated in place and new words are inserted, so the cost is that of
+     * the new file alone. Words are lowercased for an IgnoreCase tree.
+     * @param tree specifies the index tree to add to.
+     * @param docId specifies the non-negative document id of the file.
+     * @param fileName specifies the name of the file.
+     */
+    public void addDocument(BSTInterface<Word> tree, int docId, String fileName) {
+        if (fileName != null) {
+            addDocument(tree, docId, Paths.get(fileName));
+        }
+    }
+    /**
+     * Instance method to add a memory-mapped file to an existing index as
+     * a document, like addDocument(tree, docId, fileName).
+     * @param tree specifies the index tree to add to.
+     * @param docId specifies the non-negative document id of the file.
+     * @param path specifies the path of the file.
+     */
+    public void addDocument(BSTInterface<Word> tree, int docId, Path path) {
+        addDocument(tree, docId, path, null);
+    }
+    /**
+     * Instance method to add a memory-mapped file to an existing index as
+     * a document, like addDocument(tree, docId, fileName), keeping a
+     * frequency index of the tree up to date. The frequency index should
+     * hold the words of the tree, as after addAll(tree), a word missing
+     * is added when counted.
+     * @param tree specifies the index tree to add to.
+     * @param docId specifies the non-negative document id of the file.
+     * @param path specifies the path of the file.
+     * @param frequencies specifies the frequency index of the tree, null
+     * for none.
+     */
+    public void addDocument(BSTInterface<Word> tree, int docId, Path path,
+                            FrequencyIndex frequencies) {
+        buildTree(newCounter(tree, docId, 0, frequencies), path);
+    }
+    /**
+     * Instance method to add a batch of lines of a document to an existing
+     * index, like addDocument. A document can be added batch by batch, each
+     * batch starting at the line number the previous one returned.
+     * @param tree specifies the index tree to add to.
+     * @param docId specifies the non-negative document id of the lines.
+     * @param firstLine specifies the line number of the first line.
+     * @param lines specifies the lines, without their line breaks.
+     * @return the line number after the last line of the batch.
+     */
+    public int addLines(BSTInterface<Word> tree, int docId, int firstLine, Iterable<String> lines) {
+        return addLines(tree, docId, firstLine, lines, null);
+    }
+    /**
+     * Instance method to add a batch of lines of a document to an existing
+     * index, like addLines(tree, docId, firstLine, lines), keeping a
+     * frequency index of the tree up to date as addDocument does.
+     * @param tree specifies the index tree to add to.
+     * @param docId specifies the non-negative document id of the lines.
+     * @param firstLine specifies the line number of the first line.
+     * @param lines specifies the lines, without their line breaks.
+     * @param frequencies specifies the frequency index of the tree, null
+     * for none.
+     * @return the line number after the last line of the batch.
+     */
+    public int addLines(BSTInterface<Word> tree, int docId, int firstLine, Iterable<String> lines,
+                        FrequencyIndex frequencies) {
+        WordCounter counter = newCounter(tree, docId, firstLine - 1, frequencies);
+        Tokenizer tokenizer = counter.tokenizer;
+        byte[] lineBreak = {'\n'};
+        for (String cur : lines) {
+            byte[] bytes = cur.getBytes(StandardCharsets.ISO_8859_1);
+            tokenizer.feed(bytes, 0, bytes.length);
+            tokenizer.feed(lineBreak, 0, 1);
+        }
+        tokenizer.finish();
+        counter.done();
+        return firstLine - 1 + tokenizer.getLine();
+    }
     /**
      * Instance method to sort in alphabetical order.
-     * @param tree specifies the root of tree to be sorted.
+     * A tree in natural order already iterates alphabetically with
+     * distinct words, so its in-order list is returned without sorting.
+     * @param tree specifies the root of tree to be sorted, any tree or
+     * snapshot of a tree iterating in tree order.
      * @return array list with elements in sorted order.
      */
-    public ArrayList<Word> sortByAlpha(BST<Word> tree) {
+    public ArrayList<Word> sortByAlpha(Iterable<Word> tree) {
         ArrayList<Word> res = populateList(tree);
-        Collections.sort(res, new AlphaFreq());
+        if (!(tree instanceof BSTInterface) || ((BSTInterface<?>) tree).comparator() != null) {
+            Collections.sort(res, new AlphaFreq());
+        }
         return res;
     }
     /**
      * Instance method to sort in frequency order.
+     * Uses a stable counting sort when the frequencies span a range not
+     * much larger than the number of words, a comparison sort otherwise.
+     * Words of equal frequency stay in tree order either way.
      * @param tree specifies the root of tree to be sorted.
      * @return array list with elements in sorted order.
      */
-    public ArrayList<Word> sortByFrequency(BST<Word> tree) {
+    public ArrayList<Word> sortByFrequency(Iterable<Word> tree) {
         ArrayList<Word> res = populateList(tree);
-        Collections.sort(res, new Frequency());
+        if (!countingSortByFrequency(res)) {
+            Collections.sort(res, new Frequency());
+        }
         return res;
     }
     /**
      * Instance method to get list with highest frequency elements.
+     * Single pass over the tree, without sorting.
      * @param tree specifies the tree with elements.
      * @return array list with elements with highest frequency.
      */
-    public ArrayList<Word> getHighestFrequency(BST<Word> tree) {
+    public ArrayList<Word> getHighestFrequency(Iterable<Word> tree) {
         ArrayList<Word> res = new ArrayList<Word>();
-        ArrayList<Word> resList = populateList(tree);
-        Collections.sort(resList, new Frequency());
-        Word topEle = resList.remove(0);
-        res.add(topEle);
-        while (resList.size() != 0) {
-            Word cur = resList.remove(0);
-            if (cur.getFrequency() != topEle.getFrequency()) {
+        int highest = 0;
+        for (Word cur : tree) {
+            if (res.isEmpty() || cur.getFrequency() > highest) {
+                res.clear();
+                highest = cur.getFrequency();
+            } else if (cur.getFrequency() < highest) {
+                continue;
+            }
+            res.add(cur);
+        }
+        return res;
+    }
+    /**
+     * Instance method to get the k elements with highest frequency.
+     * Single pass over the tree keeping the best k elements in a bounded
+     * heap, so it runs in O(n log k) without sorting the whole tree.
+     * @param tree specifies the tree with elements.
+     * @param k specifies the number of elements wanted.
+     * @return array list with the first k elements of sortByFrequency(tree).
+     */
+    public ArrayList<Word> topK(Iterable<Word> tree, int k) {
+        ArrayList<Word> res = new ArrayList<Word>();
+        if (k <= 0) {
+            return res;
+        }
+        PriorityQueue<Ranked> heap = new PriorityQueue<Ranked>(Math.min(k, HEAP_CAPACITY) + 1);
+        int rank = 0;
+        for (Word cur : tree) {
+            if (heap.size() < k) {
+                heap.add(new Ranked(cur, rank));
+            } else if (cur.getFrequency() > heap.peek().word.getFrequency()) {
+                heap.poll();
+                heap.add(new Ranked(cur, rank));
+            }
+            rank++;
+        }
+        while (!heap.isEmpty()) {
+            res.add(heap.poll().word);
+        }
+        Collections.reverse(res);
+        return res;
+    }
+    /**
+     * Instance method to get the words starting with a prefix, in tree
+     * order. Seeks to the prefix in O(height) and stops at the first word
+     * past it, so only matching words are visited. Case is ignored for an
+     * IgnoreCase tree. The tree must be ordered by word first (natural,
+     * IgnoreCase or AlphaFreq ordering).
+     * @param tree specifies the tree with elements.
+     * @param prefix specifies the prefix.
+     * @return array list with the words starting with the prefix.
+     */
+    public ArrayList<Word> withPrefix(BST<Word> tree, String prefix) {
+        ArrayList<Word> res = new ArrayList<Word>();
+        boolean ignoreCase = tree.comparator() instanceof IgnoreCase;
+        Iterator<Word> iterator = tree.iterator(new Word(prefix));
+        while (iterator.hasNext()) {
+            Word cur = iterator.next();
+            if (!cur.getWord().regionMatches(ignoreCase, 0, prefix, 0, prefix.length())) {
                 break;
             }
             res.add(cur);
@@ -99,41 +520,179 @@ public class Index {
         if (fileName == null) {
             return myTree;
         }
-        int numOfLines = 0;
-        Scanner scanner = null;
+        return buildTree(myTree, Paths.get(fileName));
+    }
+    /**
+     * Helper method to build tree from a memory-mapped file.
+     * @param myTree specifies the root of the index tree to be built.
+     * @param path specifies the path of file.
+     * @return the index tree built.
+     */
+    private BST<Word> buildTree(BST<Word> myTree, Path path) {
+        buildTree(newCounter(myTree), path);
+        return myTree;
+    }
+    /**
+     * Helper method to count the words of a memory-mapped file.
+     * @param counter specifies the counter.
+     * @param path specifies the path of file.
+     */
+    private void buildTree(WordCounter counter, Path path) {
+        if (tokenizeFile(counter.tokenizer, path)) {
+            counter.done();
+        }
+    }
+    /**
+     * Helper method to tokenize a memory-mapped file, reporting a file
+     * that cannot be found or read.
+     * @param tokenizer specifies the tokenizer.
+     * @param path specifies the path of file.
+     * @return true if the whole file was tokenized.
+     */
+    private boolean tokenizeFile(Tokenizer tokenizer, Path path) {
         try {
-            File file = new File(fileName);
-            scanner = new Scanner(file, "latin1");
-            while (scanner.hasNextLine()) {
-                numOfLines++;
-                String line = scanner.nextLine();
-                for (String word : line.split("\\W")) {
-                    if (!isWord(word)) {
-                        continue;
-                    }
-                    if (convertLower) {
-                        word = word.toLowerCase();
+            tokenizer.tokenize(path);
+            return true;
+        } catch (NoSuchFileException e) {
+            System.err.println("Cannot find the file");
+        } catch (IOException e) {
+            System.err.println("Cannot read the file");
+        }
+        return false;
+    }
+    /**
+     * Helper method to create an empty index tree, measured if the
+     * Index is, and answering exact lookups by hashing for the orderings
+     * Word.hasher() knows.
+     * @param comparator specifies the ordering, null for natural ordering.
+     * @return the index tree.
+     */
+    private BST<Word> newTree(Comparator<Word> comparator) {
+        BST<Word> res = new BST<Word>(comparator, balanced);
+        res.setMetrics(metrics);
+        res.setHasher(Word.hasher(comparator));
+        return res;
+    }
+    /**
+     * Helper method to create a counter adding the words its tokenizer
+     * finds to the index tree, in lowercase for an IgnoreCase tree.
+     * @param myTree specifies the index tree to add words to.
+     * @return the counter.
+     */
+    private WordCounter newCounter(BSTInterface<Word> myTree) {
+        return newCounter(myTree, 0, 0, null);
+    }
+    /**
+     * Helper method to create a counter adding the words its tokenizer
+     * finds to the index tree as postings of a document, in lowercase for
+     * an IgnoreCase tree.
+     * @param myTree specifies the index tree to add words to.
+     * @param docId specifies the document id of the postings.
+     * @param lineOffset specifies the amount to shift line numbers by.
+     * @param frequencies specifies the frequency index to keep up to
+     * date, null for none.
+     * @return the counter.
+     */
+    private WordCounter newCounter(BSTInterface<Word> myTree, int docId, int lineOffset,
+                                   FrequencyIndex frequencies) {
+        boolean lower = myTree.comparator() instanceof IgnoreCase;
+        return new WordCounter(myTree, lower, null, docId, lineOffset, metrics, frequencies);
+    }
+    /**
+     * Helper method to create a counter adding the words its tokenizer
+     * finds to the index tree.
+     * @param myTree specifies the index tree to add words to.
+     * @param lower specifies if words are converted to lowercase.
+     * @param firstSeen specifies the list to append new words to in order
+     * of first occurrence, null if not needed.
+     * @return the counter.
+     */
+    private WordCounter newCounter(BSTInterface<Word> myTree, boolean lower, List<Word> firstSeen) {
+        return new WordCounter(myTree, lower, firstSeen, 0, 0, metrics, null);
+    }
+    /**
+     * Helper method to split a file into chunks that start at line
+     * boundaries, so no line and no line break is cut.
+     * @param channel specifies the file to split.
+     * @param size specifies the size of the file.
+     * @param count specifies the number of chunks wanted.
+     * @return the chunk start offsets followed by the file size.
+     * @throws IOException if reading the file fails.
+     */
+    private long[] splitAtLines(FileChannel channel, long size, int count) throws IOException {
+        long[] bounds = new long[count + 1];
+        ByteBuffer buf = ByteBuffer.allocate(LINE_SCAN_SIZE);
+        int n = 1;
+        for (int k = 1; k < count; k++) {
+            long pos = Math.max(size / count * k, bounds[n - 1]);
+            long boundary = size;
+            search:
+            while (pos < size) {
+                buf.clear();
+                int read = channel.read(buf, pos);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    int c = buf.get(i) & 0xFF;
+                    if (c == '\n' || c == 0x85) {
+                        boundary = pos + i + 1;
+                        break search;
                     }
-                    Word wr = new Word(word);
-                    Word check = myTree.search(wr);
-                    if (check != null) {
-                        check.addToIndex(numOfLines);
-                        check.setFrequency(check.getFrequency() + 1);
-                        continue;
+                    if (c == '\r') {
+                        if (i + 1 < read) {
+                            boundary = pos + i + (buf.get(i + 1) == '\n' ? 2 : 1);
+                            break search;
+                        }
+                        read = i;
                     }
-                    wr.addToIndex(numOfLines);
-                    myTree.insert(wr);
                 }
+                pos += Math.max(read, 1);
             }
-            convertLower = false;
-        } catch (FileNotFoundException e) {
-            System.err.println("Cannot find the file");
-        } finally {
-            if (scanner != null) {
-                scanner.close();
+            if (boundary < size && boundary > bounds[n - 1]) {
+                bounds[n++] = boundary;
             }
         }
-        return myTree;
+        bounds[n] = size;
+        return Arrays.copyOf(bounds, n + 1);
+    }
+    /**
+     * Helper method to sort a list by descending frequency with a stable
+     * counting sort, in O(n + range of frequencies).
+     * @param list specifies the list to sort in place.
+     * @return false if the range of frequencies is too wide to count,
+     * leaving the list as is, true once sorted.
+     */
+    private boolean countingSortByFrequency(ArrayList<Word> list) {
+        int n = list.size();
+        if (n < 2) {
+            return true;
+        }
+        int lowest = Integer.MAX_VALUE;
+        int highest = Integer.MIN_VALUE;
+        for (Word cur : list) {
+            lowest = Math.min(lowest, cur.getFrequency());
+            highest = Math.max(highest, cur.getFrequency());
+        }
+        long range = (long) highest - lowest + 1;
+        if (range > COUNTING_SORT_RANGE_FACTOR * (long) n) {
+            return false;
+        }
+        int[] start = new int[(int) range + 1];
+        for (Word cur : list) {
+            start[highest - cur.getFrequency() + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        Word[] sorted = new Word[n];
+        for (Word cur : list) {
+            sorted[start[highest - cur.getFrequency()]++] = cur;
+        }
+        for (int i = 0; i < n; i++) {
+            list.set(i, sorted[i]);
+        }
+        return true;
     }
     /**
      * Helper method used to populate Array list with elements from
@@ -141,7 +700,7 @@ public class Index {
      * @param tree specifies the tree to be traversed.
      * @return the array list with all elements from tree.
      */
-    private ArrayList<Word> populateList(BST<Word> tree) {
+    private ArrayList<Word> populateList(Iterable<Word> tree) {
         ArrayList<Word> res = new ArrayList<Word>();
         Iterator<Word> iterator = tree.iterator();
         while (iterator.hasNext()) {
@@ -150,15 +709,414 @@ public class Index {
         return res;
     }
     /**
-     * Helper method to check if its a valid word.
-     * @param text specifies the word to be checked.
-     * @return true if valid word, false otherwise.
+     * Private static nested class counting the words of a tokenizer into
+     * an index tree. Each word is upserted once, all changes to the word
+     * happen in the callbacks, so a concurrent tree can guard them. The
+     * counter is its own callback and reuses one probe word, so a word
+     * already in the tree costs no allocation besides its string.
+     *
+     * For a BST, ArenaBST or BTree in natural or IgnoreCase order, which are
+     * only written by the thread counting, words already counted are
+     * found in a term dictionary by their bytes in the input buffer and
+     * counted in place, so no string is built for them and allocation is
+     * proportional to the number of distinct words.
+     *
+     * The counter owns the tokenizer feeding it. With metrics, the time
+     * spent counting each word is measured, and done() reports the input.
      */
-    private boolean isWord(String text) {
-        if (text == null) {
-            return false;
+    private static final class WordCounter implements TokenHandler, Function<Word, Word>,
+                                                     Consumer<Word> {
+        /**
+         * Index tree the words are counted into.
+         */
+        private final BSTInterface<Word> tree;
+        /**
+         * Flag to convert words to lowercase.
+         */
+        private final boolean lower;
+        /**
+         * List new words are appended to, null if not needed.
+         */
+        private final List<Word> firstSeen;
+        /**
+         * Frequency index kept up to date, null if none.
+         */
+        private final FrequencyIndex frequencies;
+        /**
+         * Words counted so far by their bytes, lowercase if converting,
+         * null if words go through the tree every time.
+         */
+        private final TermDictionary<Word> terms;
+        /**
+         * Word used to look up the tree.
+         */
+        private final Word probe = new Word(null);
+        /**
+         * Document id of the postings added.
+         */
+        private final int docId;
+        /**
+         * Amount to shift the line numbers of the tokenizer by.
+         */
+        private final int lineOffset;
+        /**
+         * Tokenizer feeding the counter.
+         */
+        private final Tokenizer tokenizer = new Tokenizer(this);
+        /**
+         * Receiver of the measurements, null if not measuring.
+         */
+        private final Metrics metrics;
+        /**
+         * Time the counter was created, if measuring.
+         */
+        private final long start;
+        /**
+         * Number of words counted, if measuring.
+         */
+        private long tokens;
+        /**
+         * Time spent counting words into the tree, if measuring.
+         */
+        private long treeNanos;
+        /**
+         * Number of words created.
+         */
+        private long newWords;
+        /**
+         * Line of the word being counted.
+         */
+        private int line;
+        /**
+         * Constructor for the counter.
+         * @param t specifies the index tree.
+         * @param low specifies if words are converted to lowercase.
+         * @param seen specifies the list for new words, null if not needed.
+         * @param doc specifies the document id of the postings added.
+         * @param offset specifies the amount to shift line numbers by.
+         * @param m specifies the receiver of the measurements, null if
+         * not measuring.
+         * @param freq specifies the frequency index to keep up to date,
+         * null for none.
+         */
+        WordCounter(BSTInterface<Word> t, boolean low, List<Word> seen, int doc, int offset,
+                    Metrics m, FrequencyIndex freq) {
+            tree = t;
+            frequencies = freq;
+            lower = low;
+            firstSeen = seen;
+            docId = doc;
+            lineOffset = offset;
+            metrics = m;
+            start = m == null ? 0 : System.nanoTime();
+            Comparator<Word> comp = t.comparator();
+            if ((t instanceof BST || t instanceof ArenaBST || t instanceof BTree)
+                && (comp == null || comp instanceof IgnoreCase)) {
+                terms = new TermDictionary<Word>(low);
+            } else {
+                terms = null;
+            }
+        }
+        /**
+         * Implementation of token() method, counts one word.
+         */
+        @Override
+        public void token(byte[] buf, int off, int len, int wordLine) {
+            line = wordLine + lineOffset;
+            if (metrics == null) {
+                count(buf, off, len);
+                return;
+            }
+            long before = System.nanoTime();
+            count(buf, off, len);
+            treeNanos += System.nanoTime() - before;
+            tokens++;
+        }
+        /**
+         * Method to report the input to the metrics once it is read to
+         * its end, if measuring.
+         */
+        void done() {
+            if (metrics != null) {
+                done(tokenizer.getLine() - 1, System.nanoTime() - start);
+            }
+        }
+        /**
+         * Method to report the input to the metrics once it is read to
+         * its end, if measuring, for a counter fed by another tokenizer.
+         * @param lines specifies the number of line breaks read.
+         * @param nanos specifies the time taken by this counter.
+         */
+        void done(int lines, long nanos) {
+            if (metrics != null) {
+                metrics.ingest(tokens, lines, newWords, nanos, treeNanos);
+            }
+        }
+        /**
+         * Method to count one word into the tree.
+         * @param buf specifies the buffer holding the word.
+         * @param off specifies the offset of the word.
+         * @param len specifies the length of the word.
+         */
+        private void count(byte[] buf, int off, int len) {
+            if (terms != null) {
+                Word known = terms.get(buf, off, len);
+                if (known != null) {
+                    accept(known);
+                    return;
+                }
+            }
+            String word = new String(buf, off, len, StandardCharsets.ISO_8859_1);
+            if (lower) {
+                word = word.toLowerCase();
+            }
+            probe.setWord(word);
+            Word counted = tree.upsert(probe, this, this);
+            if (terms != null) {
+                terms.put(buf, off, len, counted);
+            }
+        }
+        /**
+         * Implementation of apply() method, creates the word on its
+         * first occurrence.
+         */
+        @Override
+        public Word apply(Word key) {
+            Word created = new Word(key.getWord());
+            created.addToIndex(docId, line);
+            newWords++;
+            if (firstSeen != null) {
+                firstSeen.add(created);
+            }
+            if (frequencies != null) {
+                frequencies.add(created);
+            }
+            return created;
+        }
+        /**
+         * Implementation of accept() method, counts a further occurrence
+         * of a word already in the tree.
+         */
+        @Override
+        public void accept(Word existing) {
+            existing.setFrequency(existing.getFrequency() + 1);
+            existing.addToIndex(docId, line);
+            if (frequencies != null) {
+                if (!frequencies.contains(existing)) {
+                    replaceCopied(existing);
+                }
+                frequencies.add(existing);
+            }
+        }
+        /**
+         * Helper method to hand the frequency index entry of a word over to
+         * the copy a copying tree, such as PersistentBST with Word::copy,
+         * passed for update. The tree still finds the word copied until the
+         * upsert returns.
+         * @param copy specifies the copy being counted.
+         */
+        private void replaceCopied(Word copy) {
+            Word previous = tree.search(copy);
+            if (previous != null && previous != copy && frequencies.contains(previous)) {
+                frequencies.replace(previous, copy);
+            }
+        }
+    }
+    /**
+     * Private static nested class feeding the words of one tokenizer to
+     * the counters of several index trees, so the input is read and split
+     * into words once for all of them. The line numbers are tracked once
+     * by the shared tokenizer.
+     */
+    private static final class MultiCounter implements TokenHandler {
+        /**
+         * Counters of the index trees.
+         */
+        private final WordCounter[] views;
+        /**
+         * Tokenizer feeding all the counters.
+         */
+        private final Tokenizer tokenizer = new Tokenizer(this);
+        /**
+         * Constructor for the counter.
+         * @param counters specifies the counters of the index trees.
+         */
+        MultiCounter(WordCounter[] counters) {
+            views = counters;
+        }
+        /**
+         * Implementation of token() method, counts one word into every tree.
+         */
+        @Override
+        public void token(byte[] buf, int off, int len, int line) {
+            for (WordCounter view : views) {
+                view.token(buf, off, len, line);
+            }
+        }
+        /**
+         * Method to report the input to the metrics of every counter once
+         * it is read to its end. The time not spent in any tree is shared
+         * evenly, so the times reported add up to the time of the scan.
+         */
+        void done() {
+            if (views.length == 0 || views[0].metrics == null) {
+                return;
+            }
+            long tree = 0;
+            for (WordCounter view : views) {
+                tree += view.treeNanos;
+            }
+            long shared = (System.nanoTime() - views[0].start - tree) / views.length;
+            for (WordCounter view : views) {
+                view.done(tokenizer.getLine() - 1, shared + view.treeNanos);
+            }
+        }
+    }
+    /**
+     * Private static nested class for a word and its position in
+     * the tree, ordered as the least wanted first in a topK heap: lowest
+     * frequency, and for equal frequencies the latest in the tree.
+     */
+    private static final class Ranked implements Comparable<Ranked> {
+        /**
+         * Word in the heap.
+         */
+        private final Word word;
+        /**
+         * Position of the word in the in-order traversal of the tree.
+         */
+        private final int rank;
+        /**
+         * Constructor for a ranked word.
+         * @param w specifies the word.
+         * @param r specifies the position of the word in the tree.
+         */
+        Ranked(Word w, int r) {
+            word = w;
+            rank = r;
+        }
+        /**
+         * Implementation of compareTo() method.
+         */
+        @Override
+        public int compareTo(Ranked o) {
+            int freqResult = Integer.compare(word.getFrequency(), o.word.getFrequency());
+            if (freqResult == 0) {
+                return Integer.compare(o.rank, rank);
+            }
+            return freqResult;
+        }
+    }
+    /**
+     * Private static nested class for the index of a run of chunks.
+     */
+    private static final class Chunk {
+        /**
+         * Index tree of the chunks.
+         */
+        private BST<Word> tree;
+        /**
+         * Words of the tree in order of first occurrence.
+         */
+        private List<Word> firstSeen;
+        /**
+         * Number of line breaks in the chunks.
+         */
+        private int lines;
+        /**
+         * Method to add the index of the chunks right after these ones.
+         * @param next specifies the index of the following chunks.
+         */
+        private void append(Chunk next) {
+            int offset = lines;
+            for (Word w : next.firstSeen) {
+                Word target = tree.upsert(w, k -> {
+                    Word created = new Word(k.getWord());
+                    created.setFrequency(0);
+                    firstSeen.add(created);
+                    return created;
+                }, null);
+                target.merge(w, offset);
+            }
+            lines += next.lines;
+        }
+    }
+    /**
+     * Private nested class for the fork-join task indexing a run of chunks.
+     */
+    private final class ChunkTask extends RecursiveTask<Chunk> {
+        /**
+         * Serial version UID of the task.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * File being indexed.
+         */
+        private final transient FileChannel channel;
+        /**
+         * Chunk start offsets followed by the file size.
+         */
+        private final long[] bounds;
+        /**
+         * Index of the first chunk of the run.
+         */
+        private final int from;
+        /**
+         * Index after the last chunk of the run.
+         */
+        private final int to;
+        /**
+         * Ordering of the index tree.
+         */
+        private final transient Comparator<Word> comparator;
+        /**
+         * Flag to convert words to lowercase.
+         */
+        private final boolean lower;
+        /**
+         * Constructor for the task.
+         * @param ch specifies the file being indexed.
+         * @param b specifies the chunk bounds.
+         * @param f specifies the first chunk of the run.
+         * @param t specifies the chunk after the run.
+         * @param comp specifies the ordering of the index tree.
+         * @param low specifies if words are converted to lowercase.
+         */
+        ChunkTask(FileChannel ch, long[] b, int f, int t, Comparator<Word> comp, boolean low) {
+            channel = ch;
+            bounds = b;
+            from = f;
+            to = t;
+            comparator = comp;
+            lower = low;
+        }
+        /**
+         * Implementation of compute(), indexes a single chunk directly and
+         * splits longer runs in two halves that are combined in order.
+         */
+        @Override
+        protected Chunk compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                ChunkTask right = new ChunkTask(channel, bounds, mid, to, comparator, lower);
+                right.fork();
+                Chunk res = new ChunkTask(channel, bounds, from, mid, comparator, lower).compute();
+                res.append(right.join());
+                return res;
+            }
+            Chunk res = new Chunk();
+            res.tree = newTree(comparator);
+            res.firstSeen = new ArrayList<Word>();
+            WordCounter counter = newCounter(res.tree, lower, res.firstSeen);
+            try {
+                counter.tokenizer.tokenize(channel, bounds[from], bounds[to] - bounds[from]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            counter.done();
+            res.lines = counter.tokenizer.getLine() - 1;
+            return res;
         }
-        return text.matches("[a-zA-Z]+");
     }
 
 }
@@ -0,0 +1,369 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+/**
+ * @author Dhanush Venkataramu
+ * Class for an index saved to a binary file, opened by memory-mapping it.
+ * Opening reads only the header, terms are looked up by binary search
+ * over the mapped term dictionary and a Word is built only for the terms
+ * asked for, so a service can answer queries right after start without
+ * re-indexing the source text.
+ *
+ * File format (version 2, big-endian):
+ * <pre>
+ * header   int magic "DIDX", int version, int term count, int 0,
+ *          long offset of the term dictionary, long 0
+ * data     for each term in tree order: the term in UTF-8, then its
+ *          postings as varints: the number of documents, then for each
+ *          document its id as the difference to the id before, its number
+ *          of lines, and its lines, the first one as is and the others as
+ *          the difference to the line before
+ * terms    for each term in tree order, 24 bytes: long offset of the term
+ *          in the file, int term length, int frequency,
+ *          int number of postings, int length of the postings
+ * </pre>
+ * Version 1 files, with the lines of document 0 alone and no document
+ * counts or ids, are still read.
+ * The file is mapped as a whole, so it must be smaller than 2 GB.
+ */
+public final class IndexFile implements Closeable {
+    /**
+     * Magic number at the start of an index file.
+     */
+    private static final int MAGIC = 0x44494458;
+    /**
+     * Version of the file format written.
+     */
+    private static final int VERSION = 2;
+    /**
+     * Version of the file format with the postings of document 0 alone.
+     */
+    private static final int VERSION_SINGLE_DOCUMENT = 1;
+    /**
+     * Size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 32;
+    /**
+     * Size of a term dictionary entry in bytes.
+     */
+    private static final int ENTRY_SIZE = 24;
+    /**
+     * Instance variable for the file channel, kept open while mapped.
+     */
+    private final FileChannel channel;
+    /**
+     * Instance variable for the mapped file.
+     */
+    private final MappedByteBuffer buf;
+    /**
+     * Instance variable for the version of the file format.
+     */
+    private final int version;
+    /**
+     * Instance variable for the number of terms.
+     */
+    private final int termCount;
+    /**
+     * Instance variable for the offset of the term dictionary.
+     */
+    private final int termsOffset;
+    /**
+     * Instance variable for the ordering the terms were saved in,
+     * null for natural order.
+     */
+    private final Comparator<Word> comparator;
+    /**
+     * Private constructor, index files are opened with open().
+     * @param ch specifies the file channel.
+     * @param b specifies the mapped file.
+     * @param comp specifies the ordering the terms were saved in.
+     * @throws IOException if the file is not an index file.
+     */
+    private IndexFile(FileChannel ch, MappedByteBuffer b, Comparator<Word> comp) throws IOException {
+        channel = ch;
+        buf = b;
+        comparator = comp;
+        if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("Not an index file");
+        }
+        version = buf.getInt(4);
+        if (version != VERSION && version != VERSION_SINGLE_DOCUMENT) {
+            throw new IOException("Unsupported index file version " + version);
+        }
+        termCount = buf.getInt(8);
+        termsOffset = (int) buf.getLong(16);
+        if (termCount < 0 || termsOffset < HEADER_SIZE
+            || (long) termsOffset + (long) termCount * ENTRY_SIZE > buf.limit()) {
+            throw new IOException("Corrupt index file");
+        }
+    }
+    /**
+     * Static method to save the words of an index tree to a file.
+     * @param tree specifies the words to save, iterated in tree order.
+     * @param path specifies the file to write, replaced if present.
+     * @throws IOException if writing the file fails.
+     */
+    public static void write(Iterable<Word> tree, Path path) throws IOException {
+        int count = 0;
+        long[] termOffsets = new long[64];
+        int[] entries = new int[64 * 4];
+        long pos = HEADER_SIZE;
+        try (OutputStream file = Files.newOutputStream(path);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.write(new byte[HEADER_SIZE]);
+            for (Word w : tree) {
+                if (count == termOffsets.length) {
+                    termOffsets = Arrays.copyOf(termOffsets, count * 2);
+                    entries = Arrays.copyOf(entries, count * 2 * 4);
+                }
+                byte[] term = w.getWord().getBytes(StandardCharsets.UTF_8);
+                out.write(term);
+                int[] docs = w.getDocIds();
+                int postingBytes = writeVarint(out, docs.length);
+                int lastDoc = 0;
+                for (int doc : docs) {
+                    postingBytes += writeVarint(out, doc - lastDoc);
+                    lastDoc = doc;
+                    int[] lines = w.lines(doc).toArray();
+                    postingBytes += writeVarint(out, lines.length);
+                    int last = 0;
+                    for (int line : lines) {
+                        postingBytes += writeVarint(out, line - last);
+                        last = line;
+                    }
+                }
+                termOffsets[count] = pos;
+                entries[count * 4] = term.length;
+                entries[count * 4 + 1] = w.getFrequency();
+                entries[count * 4 + 2] = w.postingCount();
+                entries[count * 4 + 3] = postingBytes;
+                pos += term.length + postingBytes;
+                count++;
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(termOffsets[i]);
+                for (int j = 0; j < 4; j++) {
+                    out.writeInt(entries[i * 4 + j]);
+                }
+            }
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0).putLong(pos).putLong(0);
+        header.flip();
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                ch.write(header, header.position());
+            }
+        }
+    }
+    /**
+     * Static method to open an index file saved from a tree in natural order.
+     * @param path specifies the file to open.
+     * @return the opened index file.
+     * @throws IOException if the file cannot be mapped or is not an index.
+     */
+    public static IndexFile open(Path path) throws IOException {
+        return open(path, null);
+    }
+    /**
+     * Static method to open an index file, memory-mapping it.
+     * @param path specifies the file to open.
+     * @param comparator specifies the ordering of the tree it was saved
+     * from, null for natural order.
+     * @return the opened index file.
+     * @throws IOException if the file cannot be mapped or is not an index.
+     */
+    public static IndexFile open(Path path, Comparator<Word> comparator) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index file too large to map");
+            }
+            MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new IndexFile(ch, b, comparator);
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+    /**
+     * Instance method to get the number of terms.
+     * @return the number of terms.
+     */
+    public int size() {
+        return termCount;
+    }
+    /**
+     * Instance method to get a term by position, decoding only the term.
+     * @param i specifies the position of the term, from 0 in tree order.
+     * @return the term.
+     */
+    public String getTerm(int i) {
+        checkPosition(i);
+        int entry = termsOffset + i * ENTRY_SIZE;
+        int offset = (int) buf.getLong(entry);
+        int length = buf.getInt(entry + 8);
+        byte[] term = new byte[length];
+        buf.duplicate().position(offset).get(term);
+        return new String(term, StandardCharsets.UTF_8);
+    }
+    /**
+     * Instance method to get a word by position, with its postings.
+     * @param i specifies the position of the word, from 0 in tree order.
+     * @return a new Word with the saved frequency and postings.
+     */
+    public Word get(int i) {
+        Word res = new Word(getTerm(i));
+        int entry = termsOffset + i * ENTRY_SIZE;
+        ByteBuffer in = buf.duplicate();
+        in.position((int) buf.getLong(entry) + buf.getInt(entry + 8));
+        res.setFrequency(buf.getInt(entry + 12));
+        if (version == VERSION_SINGLE_DOCUMENT) {
+            readLines(in, res, 0, buf.getInt(entry + 16));
+            return res;
+        }
+        int docs = readVarint(in);
+        int doc = 0;
+        for (int j = 0; j < docs; j++) {
+            doc += readVarint(in);
+            readLines(in, res, doc, readVarint(in));
+        }
+        return res;
+    }
+    /**
+     * Instance method to search a word, by binary search over the mapped
+     * term dictionary in the ordering the file was saved in.
+     * @param toSearch specifies the word to search.
+     * @return a new Word with the saved frequency and postings,
+     * null if not found.
+     */
+    public Word search(String toSearch) {
+        Word key = new Word(toSearch);
+        Word probe = new Word(null);
+        int lo = 0;
+        int hi = termCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            probe.setWord(getTerm(mid));
+            int compareResult = comparator == null ? key.compareTo(probe) : comparator.compare(key, probe);
+            if (compareResult == 0) {
+                return get(mid);
+            }
+            if (compareResult < 0) {
+                hi = mid - 1;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return null;
+    }
+    /**
+     * Instance method to load the whole index into a new tree. Words are
+     * inserted middle first, level by level, so the tree is balanced in
+     * shape even when it is not self-balancing.
+     * @param balanced specifies if the tree built is self-balancing.
+     * @return the index tree.
+     */
+    public BST<Word> load(boolean balanced) {
+        BST<Word> res = new BST<Word>(comparator, balanced);
+        res.setHasher(Word.hasher(comparator));
+        int[] ranges = new int[2 * Math.max(1, termCount)];
+        int head = 0;
+        int tail = 0;
+        if (termCount > 0) {
+            ranges[tail++] = 0;
+            ranges[tail++] = termCount;
+        }
+        while (head < tail) {
+            int lo = ranges[head++];
+            int hi = ranges[head++];
+            int mid = (lo + hi) >>> 1;
+            res.insert(get(mid));
+            if (lo < mid) {
+                ranges[tail++] = lo;
+                ranges[tail++] = mid;
+            }
+            if (mid + 1 < hi) {
+                ranges[tail++] = mid + 1;
+                ranges[tail++] = hi;
+            }
+        }
+        return res;
+    }
+    /**
+     * Implementation of close() method, closes the file. The mapping is
+     * released once the index file is no longer referenced.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    /**
+     * Helper method to check a term position.
+     * @param i specifies the position.
+     */
+    private void checkPosition(int i) {
+        if (i < 0 || i >= termCount) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + termCount);
+        }
+    }
+    /**
+     * Helper method to read the delta-coded lines of one document.
+     * @param in specifies the buffer to read from, at its position.
+     * @param w specifies the word to add the postings to.
+     * @param doc specifies the document id.
+     * @param count specifies the number of lines.
+     */
+    private static void readLines(ByteBuffer in, Word w, int doc, int count) {
+        int line = 0;
+        for (int j = 0; j < count; j++) {
+            line += readVarint(in);
+            w.addToIndex(doc, line);
+        }
+    }
+    /**
+     * Helper method to read an unsigned varint written by writeVarint.
+     * @param in specifies the buffer to read from, at its position.
+     * @return the value.
+     */
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+    /**
+     * Helper method to write an unsigned varint, 7 bits per byte, low
+     * bits first, high bit set on all bytes but the last.
+     * @param out specifies the stream to write to.
+     * @param value specifies the non-negative value.
+     * @return the number of bytes written.
+     * @throws IOException if writing fails.
+     */
+    private static int writeVarint(DataOutputStream out, int value) throws IOException {
+        int n = 1;
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+            n++;
+        }
+        out.write(value);
+        return n;
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Interface for receiving measurements of index trees and index builds.
+ * A tree or Index without metrics skips all measuring, so metrics cost
+ * nothing while disabled. Implementations given to a parallel build are
+ * called from several threads at once.
+ *
+ * @author Dhanush Venkataramu
+ */
+public interface Metrics {
+    /**
+     * Reports a search of a tree.
+     * @param comparisons number of comparator (or compareTo) calls
+     * @param depth depth of the node found, the root being at depth 0, or
+     *        the depth below the last node visited if not found
+     */
+    void search(int comparisons, int depth);
+
+    /**
+     * Reports an insert or upsert of a tree.
+     * @param comparisons number of comparator (or compareTo) calls
+     * @param depth depth of the node found or inserted, the root being at
+     *        depth 0
+     * @param inserted true if a new node was inserted, false if found
+     */
+    void insert(int comparisons, int depth, boolean inserted);
+
+    /**
+     * Reports the words of one input counted into a tree, once the input
+     * is read to its end.
+     * @param tokens number of words counted
+     * @param lines number of line breaks read
+     * @param newWords number of words not in the tree before
+     * @param nanos time taken in total
+     * @param treeNanos part of the time taken counting words into the
+     *        tree, the rest was taken reading and tokenizing
+     */
+    void ingest(long tokens, long lines, long newWords, long nanos, long treeNanos);
+}
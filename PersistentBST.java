@@ -0,0 +1,433 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+/**
+ * @author Dhanush Venkataramu
+ * Class for a persistent (path-copying), self-balancing (AVL) BST, for
+ * trees read while a writer adds to them.
+ *
+ * Nodes are never changed once linked. An insert builds new nodes for
+ * the path from the root to the new node, O(log n) of them, shares all
+ * other nodes with the version before, and publishes the new root at
+ * once. So snapshot() is O(1) and gives a version of the tree that
+ * later inserts leave as is, which readers iterate without any lock.
+ *
+ * An element already in the tree is updated on a copy made by the copier
+ * given, and the copy replaces it on a new path, so readers of an older
+ * version never see an update half done. Without a copier elements are
+ * updated in place, which suits elements without mutable state only.
+ * Writers are serialized with each other, readers are never blocked.
+ * @param <T> specifies the generic for class PersistentBST.
+ */
+public class PersistentBST<T extends Comparable<T>> implements Iterable<T>, BSTInterface<T> {
+    /**
+     * Comparator instance variable of the BST, null for natural order.
+     */
+    private final Comparator<T> comparator;
+    /**
+     * Instance variable copying an element before it is updated, null to
+     * update elements in place.
+     */
+    private final UnaryOperator<T> copier;
+    /**
+     * Instance variable root of the latest version of the BST.
+     */
+    private volatile Node<T> root;
+    /**
+     * Reusable array holding the nodes on the current insertion path,
+     * only used while holding the writer monitor.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<T>[] path = (Node<T>[]) new Node<?>[32];
+    /**
+     * Reusable array holding if the insertion path went left at each
+     * node on it.
+     */
+    private boolean[] wentLeft = new boolean[32];
+    /**
+     * Constructor for building BST with natural order, updating elements
+     * in place.
+     */
+    public PersistentBST() {
+        this(null, null);
+    }
+    /**
+     * Parameterized constructor for building BST with alternative order.
+     * @param comp specifies the comparator for BST, null for natural order.
+     * @param copy specifies how to copy an element before it is updated,
+     * null to update elements in place.
+     */
+    public PersistentBST(Comparator<T> comp, UnaryOperator<T> copy) {
+        comparator = comp;
+        copier = copy;
+    }
+    /**
+     * Instance method to return the comparator.
+     * @return the comparator of BST.
+     */
+    @Override
+    public Comparator<T> comparator() {
+        return comparator;
+    }
+    /**
+     * Instance method to get an immutable snapshot of the latest version
+     * of BST, in O(1).
+     * @return the snapshot.
+     */
+    public Snapshot<T> snapshot() {
+        return new Snapshot<T>(root, comparator);
+    }
+    /**
+     * Instance method to get height of BST.
+     * @return 0 if tree is empty, height otherwise.
+     */
+    public int getHeight() {
+        return heightOf(root, 0);
+    }
+    /**
+     * Instance method to get number of nodes in BST.
+     * @return number of nodes.
+     */
+    public int getNumberOfNodes() {
+        return sizeOf(root);
+    }
+    /**
+     * Instance method to search element in the latest version of BST,
+     * without locking.
+     * return node data if found, null otherwise.
+     */
+    @Override
+    public T search(T toSearch) {
+        return find(root, toSearch, comparator);
+    }
+    /**
+     * Instance method to insert element in BST.
+     */
+    @Override
+    public void insert(T toInsert) {
+        upsert(toInsert, null, null);
+    }
+    /**
+     * Instance method to find or insert element in BST, publishing a new
+     * version. An element found is updated on a copy if a copier is set.
+     */
+    @Override
+    public synchronized T upsert(T key, Function<? super T, ? extends T> ifAbsent,
+                                 Consumer<? super T> ifPresent) {
+        int depth = 0;
+        Node<T> node = root;
+        Node<T> sub;
+        T res;
+        while (true) {
+            if (node == null) {
+                res = ifAbsent == null ? key : ifAbsent.apply(key);
+                sub = new Node<T>(res, null, null);
+                break;
+            }
+            int compareResult = compare(key, node.data, comparator);
+            if (compareResult == 0) {
+                if (ifPresent == null) {
+                    return node.data;
+                }
+                if (copier == null) {
+                    ifPresent.accept(node.data);
+                    return node.data;
+                }
+                res = copier.apply(node.data);
+                ifPresent.accept(res);
+                sub = new Node<T>(res, node.left, node.right);
+                break;
+            }
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+                wentLeft = Arrays.copyOf(wentLeft, depth * 2);
+            }
+            path[depth] = node;
+            wentLeft[depth++] = compareResult < 0;
+            node = compareResult < 0 ? node.left : node.right;
+        }
+        while (depth > 0) {
+            Node<T> parent = path[--depth];
+            path[depth] = null;
+            if (wentLeft[depth]) {
+                sub = balance(parent.data, sub, parent.right);
+            } else {
+                sub = balance(parent.data, parent.left, sub);
+            }
+        }
+        root = sub;
+        return res;
+    }
+    /**
+     * Return an iterator to traverse through the latest version of BST in
+     * inorder fashion. Later inserts do not affect the iteration.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new InOrderIterator<T>(root);
+    }
+    /**
+     * Helper method to build a node, rebalancing it if its subtrees differ
+     * in height by two. Builds new nodes for the rotated ones and leaves
+     * the subtrees given as they are.
+     * @param data specifies the data of the node.
+     * @param left specifies the left subtree.
+     * @param right specifies the right subtree.
+     * @return the root of the new, balanced subtree.
+     */
+    private Node<T> balance(T data, Node<T> left, Node<T> right) {
+        int balance = heightOf(left, -1) - heightOf(right, -1);
+        if (balance > 1) {
+            if (heightOf(left.left, -1) < heightOf(left.right, -1)) {
+                Node<T> pivot = left.right;
+                return new Node<T>(pivot.data, new Node<T>(left.data, left.left, pivot.left),
+                                   new Node<T>(data, pivot.right, right));
+            }
+            return new Node<T>(left.data, left.left, new Node<T>(data, left.right, right));
+        }
+        if (balance < -1) {
+            if (heightOf(right.right, -1) < heightOf(right.left, -1)) {
+                Node<T> pivot = right.left;
+                return new Node<T>(pivot.data, new Node<T>(data, left, pivot.left),
+                                   new Node<T>(right.data, pivot.right, right.right));
+            }
+            return new Node<T>(right.data, new Node<T>(data, left, right.left), right.right);
+        }
+        return new Node<T>(data, left, right);
+    }
+    /**
+     * Helper method to compare two keys with the ordering of a BST.
+     * @param a specifies the first key.
+     * @param b specifies the second key.
+     * @param comparator specifies the ordering, null for natural order.
+     * @param <T> specifies the generic of BST.
+     * @return negative, zero or positive as a is less, equal or greater.
+     */
+    private static <T extends Comparable<T>> int compare(T a, T b, Comparator<T> comparator) {
+        if (comparator == null) {
+            return a.compareTo(b);
+        }
+        return comparator.compare(a, b);
+    }
+    /**
+     * Helper Method to search a version of BST.
+     * @param node specifies the root of the version.
+     * @param toSearch specifies the key being searched.
+     * @param comparator specifies the ordering, null for natural order.
+     * @param <T> specifies the generic of BST.
+     * @return null if not found, node data if found.
+     */
+    private static <T extends Comparable<T>> T find(Node<T> node, T toSearch,
+                                                   Comparator<T> comparator) {
+        while (node != null) {
+            int compareResult = compare(toSearch, node.data, comparator);
+            if (compareResult == 0) {
+                return node.data;
+            }
+            node = compareResult < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+    /**
+     * Helper method to get the stored height of a possibly empty subtree.
+     * @param node specifies the root of the subtree.
+     * @param empty specifies the height to give an empty subtree.
+     * @return the height of the subtree.
+     */
+    private static int heightOf(Node<?> node, int empty) {
+        if (node == null) {
+            return empty;
+        }
+        return node.height;
+    }
+    /**
+     * Helper method to get the stored size of a possibly empty subtree.
+     * @param node specifies the root of the subtree.
+     * @return 0 if empty, number of nodes in the subtree otherwise.
+     */
+    private static int sizeOf(Node<?> node) {
+        if (node == null) {
+            return 0;
+        }
+        return node.size;
+    }
+    /**
+     * Public static nested class for an immutable version of a
+     * PersistentBST, safe to read from any number of threads. Inserting
+     * into a snapshot throws UnsupportedOperationException.
+     * @param <T> specifies the generic of BST.
+     */
+    public static final class Snapshot<T extends Comparable<T>> implements Iterable<T>,
+                                                                          BSTInterface<T> {
+        /**
+         * Root of the version.
+         */
+        private final Node<T> root;
+        /**
+         * Comparator of the BST, null for natural order.
+         */
+        private final Comparator<T> comparator;
+        /**
+         * Constructor for a snapshot.
+         * @param r specifies the root of the version.
+         * @param comp specifies the comparator of the BST.
+         */
+        private Snapshot(Node<T> r, Comparator<T> comp) {
+            root = r;
+            comparator = comp;
+        }
+        /**
+         * Instance method to return the comparator.
+         * @return the comparator of BST.
+         */
+        @Override
+        public Comparator<T> comparator() {
+            return comparator;
+        }
+        /**
+         * Instance method to get height of the snapshot.
+         * @return 0 if tree is empty, height otherwise.
+         */
+        public int getHeight() {
+            return heightOf(root, 0);
+        }
+        /**
+         * Instance method to get number of nodes in the snapshot.
+         * @return number of nodes.
+         */
+        public int getNumberOfNodes() {
+            return sizeOf(root);
+        }
+        /**
+         * Instance method to search element in the snapshot.
+         * return node data if found, null otherwise.
+         */
+        @Override
+        public T search(T toSearch) {
+            return find(root, toSearch, comparator);
+        }
+        /**
+         * Snapshots are immutable, always throws.
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public void insert(T toInsert) {
+            throw new UnsupportedOperationException("Snapshot is read-only");
+        }
+        /**
+         * Snapshots are immutable, always throws.
+         * @throws UnsupportedOperationException always.
+         */
+        @Override
+        public T upsert(T key, Function<? super T, ? extends T> ifAbsent,
+                        Consumer<? super T> ifPresent) {
+            throw new UnsupportedOperationException("Snapshot is read-only");
+        }
+        /**
+         * Return an iterator to traverse through the snapshot in inorder
+         * fashion.
+         */
+        @Override
+        public Iterator<T> iterator() {
+            return new InOrderIterator<T>(root);
+        }
+    }
+    /**
+     * Private static nested class for Node of BST, immutable once built.
+     * @param <T> specifies the generic of BST.
+     */
+    private static final class Node<T> {
+        /**
+         * Instance variable of type T.
+         */
+        private final T data;
+        /**
+         * left child of the node.
+         */
+        private final Node<T> left;
+        /**
+         * right child of the node.
+         */
+        private final Node<T> right;
+        /**
+         * height of the subtree rooted at the node.
+         */
+        private final int height;
+        /**
+         * number of nodes in the subtree rooted at the node.
+         */
+        private final int size;
+        /**
+         * Constructor to build a new node over its subtrees.
+         * @param d specifies the data to be stored.
+         * @param l specifies the left subtree.
+         * @param r specifies the right subtree.
+         */
+        Node(T d, Node<T> l, Node<T> r) {
+            data = d;
+            left = l;
+            right = r;
+            height = Math.max(heightOf(l, -1), heightOf(r, -1)) + 1;
+            size = sizeOf(l) + sizeOf(r) + 1;
+        }
+    }
+    /**
+     * Private static nested class to iterate a version of BST in order.
+     * Nodes never change, so the stack of pending nodes is sized once by
+     * the height of the version.
+     * @param <T> specifies the generic of BST.
+     */
+    private static final class InOrderIterator<T> implements Iterator<T> {
+        /**
+         * Stack of nodes whose turn is still to come.
+         */
+        private final Node<T>[] stack;
+        /**
+         * Number of nodes on the stack.
+         */
+        private int top;
+        /**
+         * Constructor for the iterator.
+         * @param root specifies the root of the version to iterate.
+         */
+        @SuppressWarnings("unchecked")
+        InOrderIterator(Node<T> root) {
+            stack = (Node<T>[]) new Node<?>[heightOf(root, -1) + 1];
+            fillLeftSub(root);
+        }
+        /**
+         * Method to push the nodes down to the leftmost child.
+         * @param node specifies the root of the subtree.
+         */
+        private void fillLeftSub(Node<T> node) {
+            while (node != null) {
+                stack[top++] = node;
+                node = node.left;
+            }
+        }
+        /**
+         * Implementation of hasNext() method.
+         */
+        @Override
+        public boolean hasNext() {
+            return top > 0;
+        }
+        /**
+         * Implementation of next() method.
+         */
+        @Override
+        public T next() {
+            if (top == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<T> node = stack[--top];
+            stack[top] = null;
+            fillLeftSub(node.right);
+            return node.data;
+        }
+    }
+}
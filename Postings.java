@@ -0,0 +1,477 @@
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.stream.IntStream;
+/**
+ * @author Dhanush Venkataramu
+ * Class for the postings of a word, each a (document id, line index)
+ * pair, kept sorted by document then line as primitive ints in a growable
+ * array. Lines are added in increasing order while indexing, so adding is
+ * an append in the common case, and a repeat of the last line is dropped
+ * without searching.
+ *
+ * The lines of a document are stored together as a run. While all
+ * postings are in document 0, as for an index of a single file, no runs
+ * are kept and the postings cost only the line array.
+ *
+ * A copy shares the arrays of the postings copied. The copies sharing
+ * the arrays also share the length claimed in them, the most postings
+ * and runs any of them has written. A copy may append in place only if
+ * it has all the postings claimed, so it writes past the end every other
+ * copy reads. Any other change copies the arrays first, so other copies
+ * never change.
+ */
+public final class Postings {
+    /**
+     * Initial capacity of the line array.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+    /**
+     * Instance variable for the line indexes, sorted within each run.
+     */
+    private int[] lines = new int[INITIAL_CAPACITY];
+    /**
+     * Instance variable for the number of postings.
+     */
+    private int size;
+    /**
+     * Instance variable for the document id of each run, in increasing
+     * order, null while all postings are in document 0.
+     */
+    private int[] runDocs;
+    /**
+     * Instance variable for the position of the first line of each run.
+     */
+    private int[] runStarts;
+    /**
+     * Instance variable for the number of runs.
+     */
+    private int runCount;
+    /**
+     * Instance variable for the length claimed in the arrays, shared by
+     * all copies of them, null while no other copy may read the arrays.
+     */
+    private Claim claim;
+    /**
+     * Constructor for empty postings.
+     */
+    public Postings() {
+    }
+    /**
+     * Copy constructor, sharing the arrays of the postings copied in O(1).
+     * The postings copied must not be changed while being copied.
+     * @param other specifies the postings to copy.
+     */
+    public Postings(Postings other) {
+        lines = other.lines;
+        size = other.size;
+        runDocs = other.runDocs;
+        runStarts = other.runStarts;
+        runCount = other.runCount;
+        if (other.claim == null) {
+            other.claim = new Claim(other.size, other.runCount);
+        }
+        claim = other.claim;
+    }
+    /**
+     * Instance method to get the number of postings.
+     * @return the number of postings, over all documents.
+     */
+    public int size() {
+        return size;
+    }
+    /**
+     * Instance method to get a line index by position.
+     * @param i specifies the position, from 0 in (document, line) order.
+     * @return the line index at the position.
+     */
+    public int get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return lines[i];
+    }
+    /**
+     * Instance method to check if a line index is present in any document.
+     * @param line specifies the line index.
+     * @return true if present, false otherwise.
+     */
+    public boolean contains(int line) {
+        if (runDocs == null) {
+            return Arrays.binarySearch(lines, 0, size, line) >= 0;
+        }
+        for (int r = 0; r < runCount; r++) {
+            if (Arrays.binarySearch(lines, runStarts[r], runEnd(r), line) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Instance method to check if a posting is present.
+     * @param docId specifies the document id.
+     * @param line specifies the line index.
+     * @return true if present, false otherwise.
+     */
+    public boolean contains(int docId, int line) {
+        int r = findRun(docId);
+        if (r < 0) {
+            return false;
+        }
+        return Arrays.binarySearch(lines, runStart(r), runEnd(r), line) >= 0;
+    }
+    /**
+     * Instance method to get the documents with postings.
+     * @return a new array of the document ids, in increasing order.
+     */
+    public int[] docIds() {
+        if (runDocs == null) {
+            return size == 0 ? new int[0] : new int[] {0};
+        }
+        return Arrays.copyOf(runDocs, runCount);
+    }
+    /**
+     * Instance method to iterate the line indexes in (document, line)
+     * order, without boxing.
+     * @return a read-only iterator over the line indexes.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new LineIterator();
+    }
+    /**
+     * Instance method to stream the line indexes in (document, line) order.
+     * @return a stream over the line indexes present now.
+     */
+    public IntStream stream() {
+        return Arrays.stream(lines, 0, size);
+    }
+    /**
+     * Instance method to stream the line indexes of one document in
+     * increasing order.
+     * @param docId specifies the document id.
+     * @return a stream over the line indexes present now, empty if the
+     * document has none.
+     */
+    public IntStream stream(int docId) {
+        int r = findRun(docId);
+        if (r < 0) {
+            return IntStream.empty();
+        }
+        return Arrays.stream(lines, runStart(r), runEnd(r));
+    }
+    /**
+     * Instance method to view the distinct line indexes as a set. While
+     * all postings are in document 0 the view reads the postings without
+     * copying, else the lines of all documents are merged on each call of
+     * the view.
+     * @return a read-only set view that follows later additions.
+     */
+    public Set<Integer> asSet() {
+        return new SetView();
+    }
+    /**
+     * Instance method to add a line index of document 0, if not present.
+     * @param line specifies the line index to add.
+     */
+    public void add(int line) {
+        if (runDocs == null) {
+            addToRun(-1, 0, line);
+        } else {
+            add(0, line);
+        }
+    }
+    /**
+     * Instance method to add a posting, if not present.
+     * @param docId specifies the non-negative document id.
+     * @param line specifies the line index to add.
+     */
+    public void add(int docId, int line) {
+        if (docId < 0) {
+            throw new IllegalArgumentException("Negative document id: " + docId);
+        }
+        if (runDocs == null) {
+            if (docId == 0) {
+                addToRun(-1, 0, line);
+                return;
+            }
+            prepareWrite(true);
+            runDocs = new int[INITIAL_CAPACITY];
+            runStarts = new int[INITIAL_CAPACITY];
+            if (size > 0) {
+                runCount = 1;
+                claimTail();
+            }
+        }
+        if (runCount > 0 && runDocs[runCount - 1] == docId) {
+            addToRun(runCount - 1, runStarts[runCount - 1], line);
+            return;
+        }
+        int r = findRun(docId);
+        if (r >= 0) {
+            addToRun(r, runStarts[r], line);
+            return;
+        }
+        r = -r - 1;
+        int pos = r < runCount ? runStarts[r] : size;
+        prepareWrite(r == runCount);
+        if (runCount == runDocs.length) {
+            runDocs = Arrays.copyOf(runDocs, runCount * 2);
+            runStarts = Arrays.copyOf(runStarts, runCount * 2);
+        }
+        System.arraycopy(runDocs, r, runDocs, r + 1, runCount - r);
+        System.arraycopy(runStarts, r, runStarts, r + 1, runCount - r);
+        runDocs[r] = docId;
+        runStarts[r] = pos;
+        runCount++;
+        claimTail();
+        insertAt(r, pos, line);
+    }
+    /**
+     * Instance method to add all postings of other postings.
+     * @param other specifies the postings to add.
+     * @param lineOffset specifies the amount to shift the added lines by.
+     */
+    public void addAll(Postings other, int lineOffset) {
+        ensureCapacity(size + other.size);
+        if (other.runDocs == null) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.lines[i] + lineOffset);
+            }
+            return;
+        }
+        for (int r = 0; r < other.runCount; r++) {
+            for (int i = other.runStarts[r]; i < other.runEnd(r); i++) {
+                add(other.runDocs[r], other.lines[i] + lineOffset);
+            }
+        }
+    }
+    /**
+     * Implementation of toString() method. While all postings are in
+     * document 0 it is in the same format as a set of Integers, with lines
+     * in increasing order, else each posting is printed as document:line.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        int r = 0;
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            if (runDocs != null) {
+                while (i >= runEnd(r)) {
+                    r++;
+                }
+                sb.append(runDocs[r]).append(':');
+            }
+            sb.append(lines[i]);
+        }
+        return sb.append(']').toString();
+    }
+    /**
+     * Helper method to find the run of a document.
+     * @param docId specifies the document id.
+     * @return the run if present, else (-(insertion point) - 1); while no
+     * runs are kept, document 0 is run 0 if there are postings.
+     */
+    private int findRun(int docId) {
+        if (runDocs == null) {
+            if (docId == 0 && size > 0) {
+                return 0;
+            }
+            return docId < 0 || size == 0 ? -1 : -2;
+        }
+        return Arrays.binarySearch(runDocs, 0, runCount, docId);
+    }
+    /**
+     * Helper method to get the position of the first line of a run.
+     * @param r specifies the run, any while no runs are kept.
+     * @return the position of the first line.
+     */
+    private int runStart(int r) {
+        return runDocs == null ? 0 : runStarts[r];
+    }
+    /**
+     * Helper method to get the position after the last line of a run.
+     * @param r specifies the run, any while no runs are kept.
+     * @return the position after the last line.
+     */
+    private int runEnd(int r) {
+        if (runDocs == null || r + 1 >= runCount) {
+            return size;
+        }
+        return runStarts[r + 1];
+    }
+    /**
+     * Helper method to add a line index to an existing run, or to the
+     * postings while no runs are kept.
+     * @param r specifies the run, -1 while no runs are kept.
+     * @param start specifies the position of the first line of the run.
+     * @param line specifies the line index to add.
+     */
+    private void addToRun(int r, int start, int line) {
+        int end = r < 0 ? size : runEnd(r);
+        if (end == size && (end == start || line > lines[end - 1])) {
+            prepareWrite(true);
+            ensureCapacity(size + 1);
+            lines[size++] = line;
+            claimTail();
+            return;
+        }
+        if (end > start && line == lines[end - 1]) {
+            return;
+        }
+        int pos = Arrays.binarySearch(lines, start, end, line);
+        if (pos >= 0) {
+            return;
+        }
+        insertAt(r, -pos - 1, line);
+    }
+    /**
+     * Helper method to insert a line index at a position, moving the
+     * lines after it and the runs after the run it is added to.
+     * @param r specifies the run added to, -1 while no runs are kept.
+     * @param pos specifies the position.
+     * @param line specifies the line index to insert.
+     */
+    private void insertAt(int r, int pos, int line) {
+        prepareWrite(pos == size);
+        ensureCapacity(size + 1);
+        System.arraycopy(lines, pos, lines, pos + 1, size - pos);
+        lines[pos] = line;
+        size++;
+        claimTail();
+        for (int i = r + 1; i < runCount; i++) {
+            runStarts[i]++;
+        }
+    }
+    /**
+     * Helper method to copy the arrays before a change other copies would
+     * see, that is any change but an append by a copy having all the
+     * postings and runs claimed.
+     * @param append specifies if the change only writes past the end.
+     */
+    private void prepareWrite(boolean append) {
+        if (claim == null || (append && claim.size == size && claim.runCount == runCount)) {
+            return;
+        }
+        lines = lines.clone();
+        if (runDocs != null) {
+            runDocs = runDocs.clone();
+            runStarts = runStarts.clone();
+        }
+        claim = null;
+    }
+    /**
+     * Helper method to claim the postings and runs written in place, so
+     * copies having fewer no longer append in place.
+     */
+    private void claimTail() {
+        if (claim != null) {
+            claim.size = size;
+            claim.runCount = runCount;
+        }
+    }
+    /**
+     * Helper method to grow the line array by doubling.
+     * @param capacity specifies the capacity needed.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > lines.length) {
+            lines = Arrays.copyOf(lines, Math.max(capacity, lines.length * 2));
+        }
+    }
+    /**
+     * Helper method to get the distinct line indexes of all documents.
+     * @return a new sorted array of the distinct line indexes.
+     */
+    private int[] distinctLines() {
+        return Arrays.stream(lines, 0, size).sorted().distinct().toArray();
+    }
+    /**
+     * Private static nested class for the length claimed in arrays shared
+     * by copies of postings.
+     */
+    private static final class Claim {
+        /**
+         * Number of postings written in the line array.
+         */
+        private int size;
+        /**
+         * Number of runs written in the run arrays.
+         */
+        private int runCount;
+        /**
+         * Constructor to claim the postings and runs of a copy.
+         * @param s specifies the number of postings.
+         * @param runs specifies the number of runs.
+         */
+        Claim(int s, int runs) {
+            size = s;
+            runCount = runs;
+        }
+    }
+    /**
+     * Private nested class to iterate line indexes without boxing.
+     */
+    private final class LineIterator implements PrimitiveIterator.OfInt {
+        /**
+         * Position of the next line index.
+         */
+        private int next;
+        /**
+         * Implementation of hasNext() method.
+         */
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+        /**
+         * Implementation of nextInt() method.
+         */
+        @Override
+        public int nextInt() {
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            return lines[next++];
+        }
+    }
+    /**
+     * Private nested class for the read-only set view of line indexes.
+     * Mutators inherited from AbstractSet throw
+     * UnsupportedOperationException.
+     */
+    private final class SetView extends AbstractSet<Integer> {
+        /**
+         * Implementation of iterator() method.
+         */
+        @Override
+        public Iterator<Integer> iterator() {
+            if (runDocs == null) {
+                return new LineIterator();
+            }
+            return Arrays.stream(distinctLines()).iterator();
+        }
+        /**
+         * Implementation of size() method.
+         */
+        @Override
+        public int size() {
+            if (runDocs == null) {
+                return size;
+            }
+            return distinctLines().length;
+        }
+        /**
+         * Implementation of contains() method, by binary search.
+         */
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && Postings.this.contains((Integer) o);
+        }
+    }
+}
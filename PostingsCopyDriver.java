@@ -0,0 +1,74 @@
+import java.util.Arrays;
+
+/**
+ * Test program to check that copies of a word sharing postings storage
+ * never see each other's changes, whichever copies are changed.
+ * @author Dhanush Venkataramu
+ */
+public class PostingsCopyDriver {
+
+    /**
+     * Test program to copy words and add to every copy.
+     * @param args arguments, not used.
+     */
+    public static void main(String[] args) {
+        System.out.println("********COPY one version twice************\n");
+        Word w = new Word("apple");
+        w.addToIndex(1);
+        w.addToIndex(2);
+        Word c1 = w.copy();
+        Word c2 = w.copy();
+        c1.addToIndex(10);
+        c2.addToIndex(20);
+        w.addToIndex(30);
+        check("the first copy is " + c1.getIndexView(), c1.getIndexView().toString().equals("[1, 2, 10]"));
+        check("the second copy is " + c2.getIndexView(), c2.getIndexView().toString().equals("[1, 2, 20]"));
+        check("the word is " + w.getIndexView(), w.getIndexView().toString().equals("[1, 2, 30]"));
+        System.out.println();
+
+        System.out.println("********COPY an older version************\n");
+        Word old = new Word("pear");
+        old.addToIndex(1);
+        Word newer = old.copy();
+        newer.addToIndex(2);
+        Word fromOld = old.copy();
+        fromOld.addToIndex(3);
+        newer.addToIndex(4);
+        check("the older version is " + old.getIndexView(), old.getIndexView().toString().equals("[1]"));
+        check("the newer version is " + newer.getIndexView(), newer.getIndexView().toString().equals("[1, 2, 4]"));
+        check("the copy of the older version is " + fromOld.getIndexView(),
+              fromOld.getIndexView().toString().equals("[1, 3]"));
+        System.out.println();
+
+        System.out.println("********COPY postings of several documents************\n");
+        Word doc = new Word("plum");
+        doc.addToIndex(0, 1);
+        doc.addToIndex(1, 5);
+        Word d1 = doc.copy();
+        Word d2 = doc.copy();
+        d1.addToIndex(2, 7);
+        d2.addToIndex(3, 9);
+        d2.addToIndex(1, 6);
+        check("the first copy has documents " + Arrays.toString(d1.getDocIds()),
+              Arrays.equals(d1.getDocIds(), new int[] {0, 1, 2}) && d1.containsPosting(2, 7)
+              && !d1.containsPosting(3, 9));
+        check("the second copy has documents " + Arrays.toString(d2.getDocIds()),
+              Arrays.equals(d2.getDocIds(), new int[] {0, 1, 3}) && d2.containsPosting(1, 6)
+              && !d2.containsPosting(2, 7));
+        check("the word has documents " + Arrays.toString(doc.getDocIds()),
+              Arrays.equals(doc.getDocIds(), new int[] {0, 1}) && !doc.containsPosting(1, 6));
+    }
+
+    /**
+     * Helper method to print a check and stop if it failed.
+     * @param message specifies what was checked.
+     * @param passed specifies if the check passed.
+     * @throws IllegalStateException if the check failed.
+     */
+    private static void check(String message, boolean passed) {
+        if (!passed) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("ok: " + message);
+    }
+}
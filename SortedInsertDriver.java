@@ -0,0 +1,86 @@
+/**
+ * Test program to check that BST takes one million keys inserted in
+ * sorted order, the worst case for a plain BST, without running out of
+ * stack.
+ *
+ * A plain BST of sorted keys is a list one node wide, so each insert
+ * walks every node before it and the plain run does about n * n / 2
+ * steps, tens of minutes for the default one million keys. A smaller number
+ * of keys may be given for a quick run.
+ * @author Dhanush Venkataramu
+ */
+public class SortedInsertDriver {
+
+    /**
+     * Default number of keys inserted.
+     */
+    private static final int KEYS = 1_000_000;
+
+    /**
+     * Test program to insert and search sorted keys in a plain and a
+     * balanced BST.
+     * @param args arguments, optionally the number of keys.
+     */
+    public static void main(String[] args) {
+        int keys = args.length > 0 ? Integer.parseInt(args[0]) : KEYS;
+
+        System.out.println("********BUILD plain tree of " + keys + " sorted keys************\n");
+        BST<Integer> plain = build(new BST<>(false), keys);
+        // Every key is the right child of the key before it.
+        check("the height is " + plain.getHeight(), plain.getHeight() == keys - 1);
+        checkTree(plain, keys);
+        System.out.println();
+
+        System.out.println("********BUILD balanced tree of " + keys + " sorted keys*********\n");
+        BST<Integer> balanced = build(new BST<>(true), keys);
+        int maxHeight = (int) (1.45 * Math.log(keys + 2) / Math.log(2));
+        check("the height is " + balanced.getHeight(), balanced.getHeight() <= maxHeight);
+        checkTree(balanced, keys);
+    }
+
+    /**
+     * Helper method to insert the keys 0 to keys - 1 in increasing order.
+     * @param tree specifies the empty tree to insert in.
+     * @param keys specifies the number of keys.
+     * @return the tree.
+     */
+    private static BST<Integer> build(BST<Integer> tree, int keys) {
+        for (int i = 0; i < keys; i++) {
+            tree.insert(i);
+        }
+        return tree;
+    }
+
+    /**
+     * Helper method to check the size, lookups and order of a tree of
+     * the keys 0 to keys - 1.
+     * @param tree specifies the tree.
+     * @param keys specifies the number of keys.
+     */
+    private static void checkTree(BST<Integer> tree, int keys) {
+        check("the number of nodes is " + tree.getNumberOfNodes(), tree.getNumberOfNodes() == keys);
+        check("the last key is found", tree.search(keys - 1) != null);
+        check("a missing key is not found", tree.search(keys) == null);
+        int expected = 0;
+        for (Integer key : tree) {
+            if (key != expected) {
+                break;
+            }
+            expected++;
+        }
+        check("the keys iterate in order", expected == keys);
+    }
+
+    /**
+     * Helper method to print a check and stop if it failed.
+     * @param message specifies what was checked.
+     * @param passed specifies if the check passed.
+     * @throws IllegalStateException if the check failed.
+     */
+    private static void check(String message, boolean passed) {
+        if (!passed) {
+            throw new IllegalStateException("FAILED: " + message);
+        }
+        System.out.println("ok: " + message);
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+/**
+ * @author Dhanush Venkataramu
+ * Class for a hash table from terms to values, looked up by a slice of a
+ * byte buffer (offset and length) so a term already present is found
+ * without building a String for it. Open addressing with linear probing,
+ * the keys are copied into one byte array when added, so the table holds
+ * a fixed number of arrays however many terms it has.
+ *
+ * Case is optionally folded for ASCII letters, "Word" and "word" are
+ * then the same term. The tokenizer only gives ASCII letters, for which
+ * this matches String.toLowerCase().
+ * @param <V> specifies the generic of the values.
+ */
+public final class TermDictionary<V> {
+    /**
+     * Initial number of slots, a power of two.
+     */
+    private static final int INITIAL_SLOTS = 1024;
+    /**
+     * Lowercase of each byte for ASCII letters, the byte itself otherwise.
+     */
+    private static final byte[] FOLD = new byte[256];
+    static {
+        for (int i = 0; i < FOLD.length; i++) {
+            FOLD[i] = (byte) (i >= 'A' && i <= 'Z' ? i + ('a' - 'A') : i);
+        }
+    }
+    /**
+     * Flag to fold the case of ASCII letters.
+     */
+    private final boolean foldCase;
+    /**
+     * Hash slots holding the entry number plus one, 0 if empty.
+     */
+    private int[] slots = new int[INITIAL_SLOTS];
+    /**
+     * Hash of each entry.
+     */
+    private int[] hashes = new int[INITIAL_SLOTS / 2];
+    /**
+     * Offset of the key of each entry in the key bytes, followed by the
+     * end of the last key.
+     */
+    private int[] keyStarts = new int[INITIAL_SLOTS / 2 + 1];
+    /**
+     * Key bytes of all entries, folded if case is folded.
+     */
+    private byte[] keys = new byte[INITIAL_SLOTS * 4];
+    /**
+     * Value of each entry.
+     */
+    private Object[] values = new Object[INITIAL_SLOTS / 2];
+    /**
+     * Number of entries.
+     */
+    private int count;
+    /**
+     * Constructor for the dictionary.
+     * @param fold specifies if the case of ASCII letters is folded.
+     */
+    public TermDictionary(boolean fold) {
+        foldCase = fold;
+    }
+    /**
+     * Instance method to get the number of terms.
+     * @return the number of terms.
+     */
+    public int size() {
+        return count;
+    }
+    /**
+     * Instance method to get the value of a term, without allocating.
+     * @param buf specifies the buffer holding the term.
+     * @param off specifies the offset of the term.
+     * @param len specifies the length of the term.
+     * @return the value, null if the term is not present.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(byte[] buf, int off, int len) {
+        int h = hash(buf, off, len);
+        int mask = slots.length - 1;
+        for (int i = h & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int entry = slots[i] - 1;
+            if (hashes[entry] == h && keyEquals(entry, buf, off, len)) {
+                return (V) values[entry];
+            }
+        }
+        return null;
+    }
+    /**
+     * Instance method to add a term that is not present.
+     * @param buf specifies the buffer holding the term.
+     * @param off specifies the offset of the term.
+     * @param len specifies the length of the term.
+     * @param value specifies the value of the term.
+     */
+    public void put(byte[] buf, int off, int len, V value) {
+        if (count == values.length) {
+            int capacity = count * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            keyStarts = Arrays.copyOf(keyStarts, capacity + 1);
+            values = Arrays.copyOf(values, capacity);
+            rehash(slots.length * 2);
+        }
+        int start = keyStarts[count];
+        if (start + len > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(start + len, keys.length * 2));
+        }
+        for (int i = 0; i < len; i++) {
+            keys[start + i] = foldCase ? FOLD[buf[off + i] & 0xFF] : buf[off + i];
+        }
+        int h = hash(buf, off, len);
+        hashes[count] = h;
+        keyStarts[count + 1] = start + len;
+        values[count] = value;
+        count++;
+        insertSlot(h, count);
+    }
+    /**
+     * Helper method to hash a term, folding case if needed.
+     * @param buf specifies the buffer holding the term.
+     * @param off specifies the offset of the term.
+     * @param len specifies the length of the term.
+     * @return the hash, with the high bits mixed into the low ones.
+     */
+    private int hash(byte[] buf, int off, int len) {
+        int h = 0;
+        if (foldCase) {
+            for (int i = off; i < off + len; i++) {
+                h = 31 * h + FOLD[buf[i] & 0xFF];
+            }
+        } else {
+            for (int i = off; i < off + len; i++) {
+                h = 31 * h + buf[i];
+            }
+        }
+        return h ^ (h >>> 16);
+    }
+    /**
+     * Helper method to compare the key of an entry with a term.
+     * @param entry specifies the entry.
+     * @param buf specifies the buffer holding the term.
+     * @param off specifies the offset of the term.
+     * @param len specifies the length of the term.
+     * @return true if equal, folding case if needed.
+     */
+    private boolean keyEquals(int entry, byte[] buf, int off, int len) {
+        int start = keyStarts[entry];
+        if (keyStarts[entry + 1] - start != len) {
+            return false;
+        }
+        if (!foldCase) {
+            return Arrays.equals(keys, start, start + len, buf, off, off + len);
+        }
+        for (int i = 0; i < len; i++) {
+            if (keys[start + i] != FOLD[buf[off + i] & 0xFF]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    /**
+     * Helper method to put an entry in the first free slot for its hash.
+     * @param h specifies the hash of the entry.
+     * @param slot specifies the entry number plus one.
+     */
+    private void insertSlot(int h, int slot) {
+        int mask = slots.length - 1;
+        int i = h & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = slot;
+    }
+    /**
+     * Helper method to rebuild the slots with a new number of slots.
+     * @param capacity specifies the number of slots, a power of two.
+     */
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int entry = 0; entry < count; entry++) {
+            insertSlot(hashes[entry], entry + 1);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Interface for receiving the words found by a Tokenizer.
+ *
+ * @author Dhanush Venkataramu
+ */
+public interface TokenHandler {
+    /**
+     * Called for every word, in input order. The word is the latin1
+     * text buf[off, off + len), the buffer is only valid during the call.
+     * @param buf buffer holding the word
+     * @param off offset of the first character of the word
+     * @param len number of characters in the word
+     * @param line line number (from 1) the word appears on
+     */
+    void token(byte[] buf, int off, int len, int line);
+}
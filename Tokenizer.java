@@ -0,0 +1,321 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+/**
+ * @author Dhanush Venkataramu
+ * Class for splitting latin1 text into words with their line numbers.
+ * Scans raw bytes with a lookup table, so it needs no regex, no String
+ * per line and no array per line. Gives the same words and line numbers
+ * as reading lines with Scanner, splitting them on "\\W" and keeping the
+ * parts matching "[a-zA-Z]+": a run of word characters [a-zA-Z0-9_] is a
+ * word only if it has letters alone, and a line ends at "\r\n", "\n",
+ * "\r" or the latin1 next-line character.
+ * Input is fed in chunks of any size, words split across chunks are
+ * carried over.
+ */
+public class Tokenizer {
+    /**
+     * Byte class of characters that separate words.
+     */
+    private static final byte OTHER = 0;
+    /**
+     * Byte class of the line feed character.
+     */
+    private static final byte LINE_FEED = 1;
+    /**
+     * Byte class of the carriage return character.
+     */
+    private static final byte CARRIAGE_RETURN = 2;
+    /**
+     * Byte class of the latin1 next-line character.
+     */
+    private static final byte NEXT_LINE = 3;
+    /**
+     * Byte class of word characters that are not letters (digits, '_').
+     */
+    private static final byte NON_LETTER = 4;
+    /**
+     * Byte class of letters.
+     */
+    private static final byte LETTER = 5;
+    /**
+     * Lookup table from latin1 byte to its byte class.
+     */
+    private static final byte[] CLASSES = new byte[256];
+    static {
+        CLASSES['\n'] = LINE_FEED;
+        CLASSES['\r'] = CARRIAGE_RETURN;
+        CLASSES[0x85] = NEXT_LINE;
+        CLASSES['_'] = NON_LETTER;
+        for (int c = '0'; c <= '9'; c++) {
+            CLASSES[c] = NON_LETTER;
+        }
+        for (int c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] = LETTER;
+            CLASSES[c - 'a' + 'A'] = LETTER;
+        }
+    }
+    /**
+     * Size of the buffer used to read input streams.
+     */
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    /**
+     * Size of the direct buffer used to read channels.
+     */
+    private static final int CHANNEL_BUFFER_SIZE = 1 << 20;
+    /**
+     * Size of the windows a file is memory-mapped in, a single mapping
+     * cannot exceed 2 GB.
+     */
+    private static final long MAP_WINDOW_SIZE = 1L << 28;
+    /**
+     * Instance variable for the handler receiving the words.
+     */
+    private final TokenHandler handler;
+    /**
+     * Instance variable for the current line number.
+     */
+    private int line = 1;
+    /**
+     * Instance flag variable, true if the last character was '\r'.
+     */
+    private boolean afterCarriageReturn;
+    /**
+     * Instance variable holding a run of word characters cut off at the
+     * end of the previous chunk.
+     */
+    private byte[] carry = new byte[64];
+    /**
+     * Instance variable for the number of characters in carry, -1 if no
+     * run is carried over.
+     */
+    private int carryLength = -1;
+    /**
+     * Instance flag variable, true if the carried run has letters alone.
+     */
+    private boolean carryLetters;
+    /**
+     * Instance variable for the scratch array off-heap buffers are
+     * copied into, slice by slice, allocated on first use.
+     */
+    private byte[] scratch;
+    /**
+     * Constructor for Tokenizer.
+     * @param h specifies the handler receiving the words.
+     */
+    public Tokenizer(TokenHandler h) {
+        handler = h;
+    }
+    /**
+     * Instance method to get the current line number.
+     * @return the line number the next character is on.
+     */
+    public int getLine() {
+        return line;
+    }
+    /**
+     * Instance method to tokenize a whole stream.
+     * @param in specifies the stream to read, it is not closed.
+     * @throws IOException if reading the stream fails.
+     */
+    public void tokenize(InputStream in) throws IOException {
+        byte[] buf = new byte[READ_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buf)) >= 0) {
+            feed(buf, 0, read);
+        }
+        finish();
+    }
+    /**
+     * Instance method to tokenize a whole file by memory-mapping it,
+     * so the file is read by the page cache without read calls.
+     * @param path specifies the file to read.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public void tokenize(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            tokenize(channel, 0, channel.size());
+        }
+    }
+    /**
+     * Instance method to tokenize a region of a file by memory-mapping it.
+     * @param channel specifies the file to read, it is not closed.
+     * @param position specifies the offset of the region in the file.
+     * @param length specifies the length of the region.
+     * @throws IOException if the region cannot be mapped.
+     */
+    public void tokenize(FileChannel channel, long position, long length) throws IOException {
+        long end = position + length;
+        for (long pos = position; pos < end; pos += MAP_WINDOW_SIZE) {
+            long size = Math.min(MAP_WINDOW_SIZE, end - pos);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+            feed(window);
+        }
+        finish();
+    }
+    /**
+     * Instance method to tokenize a whole channel, reading it with a
+     * large direct buffer.
+     * @param channel specifies the channel to read, it is not closed.
+     * @throws IOException if reading the channel fails.
+     */
+    public void tokenize(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocateDirect(CHANNEL_BUFFER_SIZE);
+        while (channel.read(buf) >= 0) {
+            buf.flip();
+            feed(buf);
+            buf.clear();
+        }
+        finish();
+    }
+    /**
+     * Instance method to tokenize the remaining bytes of a buffer as the
+     * next chunk of input. Heap buffers are scanned in place, off-heap
+     * (direct or mapped) buffers are bulk copied slice by slice into a
+     * small scratch array that stays in cache.
+     * @param buf specifies the buffer, it is fully consumed.
+     */
+    public void feed(ByteBuffer buf) {
+        if (buf.hasArray()) {
+            feed(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            buf.position(buf.limit());
+            return;
+        }
+        if (scratch == null) {
+            scratch = new byte[READ_BUFFER_SIZE];
+        }
+        while (buf.hasRemaining()) {
+            int len = Math.min(buf.remaining(), scratch.length);
+            buf.get(scratch, 0, len);
+            feed(scratch, 0, len);
+        }
+    }
+    /**
+     * Instance method to tokenize the next chunk of input.
+     * @param buf specifies the buffer holding the chunk.
+     * @param off specifies the offset of the chunk.
+     * @param len specifies the length of the chunk.
+     */
+    public void feed(byte[] buf, int off, int len) {
+        int end = off + len;
+        int i = off;
+        if (carryLength >= 0) {
+            i = continueCarry(buf, i, end);
+        }
+        while (i < end) {
+            byte cls = CLASSES[buf[i] & 0xFF];
+            if (cls >= NON_LETTER) {
+                int start = i;
+                boolean letters = true;
+                do {
+                    if (cls == NON_LETTER) {
+                        letters = false;
+                    }
+                    if (++i == end) {
+                        startCarry(buf, start, i - start, letters);
+                        return;
+                    }
+                    cls = CLASSES[buf[i] & 0xFF];
+                } while (cls >= NON_LETTER);
+                afterCarriageReturn = false;
+                if (letters) {
+                    handler.token(buf, start, i - start, line);
+                }
+                continue;
+            }
+            if (cls == LINE_FEED) {
+                if (!afterCarriageReturn) {
+                    line++;
+                }
+                afterCarriageReturn = false;
+            } else if (cls == CARRIAGE_RETURN) {
+                line++;
+                afterCarriageReturn = true;
+            } else {
+                if (cls == NEXT_LINE) {
+                    line++;
+                }
+                afterCarriageReturn = false;
+            }
+            i++;
+        }
+    }
+    /**
+     * Instance method to end the input, emitting a carried word if any.
+     */
+    public void finish() {
+        if (carryLength >= 0) {
+            emitCarry();
+        }
+    }
+    /**
+     * Helper method to extend the carried run with the word characters
+     * at the start of a chunk.
+     * @param buf specifies the buffer holding the chunk.
+     * @param i specifies the offset of the chunk.
+     * @param end specifies the end of the chunk.
+     * @return the offset of the first character after the run.
+     */
+    private int continueCarry(byte[] buf, int i, int end) {
+        int start = i;
+        boolean letters = true;
+        while (i < end) {
+            byte cls = CLASSES[buf[i] & 0xFF];
+            if (cls < NON_LETTER) {
+                break;
+            }
+            if (cls == NON_LETTER) {
+                letters = false;
+            }
+            i++;
+        }
+        appendCarry(buf, start, i - start, letters);
+        if (i < end) {
+            emitCarry();
+        }
+        return i;
+    }
+    /**
+     * Helper method to start carrying a run cut off at the end of a chunk.
+     * @param buf specifies the buffer holding the run.
+     * @param off specifies the offset of the run.
+     * @param len specifies the length of the run.
+     * @param letters specifies if the run has letters alone.
+     */
+    private void startCarry(byte[] buf, int off, int len, boolean letters) {
+        carryLength = 0;
+        carryLetters = true;
+        appendCarry(buf, off, len, letters);
+    }
+    /**
+     * Helper method to append characters to the carried run.
+     * @param buf specifies the buffer holding the characters.
+     * @param off specifies the offset of the characters.
+     * @param len specifies the number of characters.
+     * @param letters specifies if the characters are letters alone.
+     */
+    private void appendCarry(byte[] buf, int off, int len, boolean letters) {
+        if (carryLength + len > carry.length) {
+            carry = Arrays.copyOf(carry, Math.max(carry.length * 2, carryLength + len));
+        }
+        System.arraycopy(buf, off, carry, carryLength, len);
+        carryLength += len;
+        carryLetters &= letters;
+    }
+    /**
+     * Helper method to emit the carried run if it is a word.
+     */
+    private void emitCarry() {
+        afterCarriageReturn = false;
+        if (carryLetters && carryLength > 0) {
+            handler.token(carry, 0, carryLength, line);
+        }
+        carryLength = -1;
+    }
+}
@@ -1,5 +1,9 @@
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.PrimitiveIterator;
 import java.util.Set;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
 /**
  * @author Dhanush Venkataramu
  * Class for words.
@@ -11,19 +15,35 @@ public class Word implements Comparable<Word> {
     private String word;
     /**
      * Instance variable to store the line indexes of word.
-     * Used HashSet from classes implementing Set interface.
+     * Kept as primitive ints, sorted, without boxing.
      */
-    private Set<Integer> index = new HashSet<Integer>();
+    private Postings index = new Postings();
     /**
      * Instance variable to store frequency of word.
      */
     private int frequency;
+    /**
+     * Number of characters packed into a collation key.
+     */
+    private static final int KEY_CHARS = 4;
+    /**
+     * Instance variable for the collation key of the word, its first
+     * characters packed 16 bits each, so comparing keys unsigned gives
+     * the order of String.compareTo() unless the keys are equal.
+     */
+    private long key;
+    /**
+     * Instance variable for the case-folded collation key of the word,
+     * giving the order of String.compareToIgnoreCase() unless equal.
+     */
+    private long foldedKey;
     /**
      * Constructor for Word class.
      * @param s specifies string data for the word.
      */
     public Word(String s) {
         word = s;
+        computeKeys();
         frequency = 1;
     }
     /**
@@ -42,23 +62,119 @@ public class Word implements Comparable<Word> {
     }
     /**
      * Instance method to get the line indexes for a word.
-     * @return the set of line indexes.
+     * @return the set of line indexes, over all documents.
      * Protecting private data by returning a deep copy of the set.
      */
     public Set<Integer> getIndex() {
         Set<Integer> res = new HashSet<Integer>();
-        for (Integer i : index) {
-            Integer x = i.intValue();
-            res.add(x);
+        for (int i = 0; i < index.size(); i++) {
+            res.add(index.get(i));
         }
         return  res;
     }
+    /**
+     * Instance method to view the line indexes for a word without copying.
+     * @return a read-only set view of the line indexes, which follows
+     * later additions to the word.
+     */
+    public Set<Integer> getIndexView() {
+        return index.asSet();
+    }
+    /**
+     * Instance method to iterate the line indexes for a word in (document,
+     * line) order, without copying or boxing.
+     * @return a read-only iterator over the line indexes.
+     */
+    public PrimitiveIterator.OfInt lineIterator() {
+        return index.iterator();
+    }
+    /**
+     * Instance method to stream the line indexes for a word in (document,
+     * line) order, without copying or boxing.
+     * @return a stream over the line indexes.
+     */
+    public IntStream lines() {
+        return index.stream();
+    }
+    /**
+     * Instance method to check if a word appears on a line.
+     * @param line specifies the line index.
+     * @return true if the word appears on the line, false otherwise.
+     */
+    public boolean containsLine(int line) {
+        return index.contains(line);
+    }
+    /**
+     * Instance method to check if a word appears on a line of a document.
+     * @param docId specifies the document id.
+     * @param line specifies the line index.
+     * @return true if the word appears on the line, false otherwise.
+     */
+    public boolean containsPosting(int docId, int line) {
+        return index.contains(docId, line);
+    }
+    /**
+     * Instance method to get the documents a word appears in.
+     * @return a new array of the document ids, in increasing order.
+     */
+    public int[] getDocIds() {
+        return index.docIds();
+    }
+    /**
+     * Instance method to stream the line indexes for a word in one
+     * document in increasing order, without copying or boxing.
+     * @param docId specifies the document id.
+     * @return a stream over the line indexes, empty if the word does not
+     * appear in the document.
+     */
+    public IntStream lines(int docId) {
+        return index.stream(docId);
+    }
+    /**
+     * Instance method to get the number of postings for a word.
+     * @return the number of distinct (document, line) pairs the word
+     * appears on.
+     */
+    public int postingCount() {
+        return index.size();
+    }
+    /**
+     * Instance method to copy a word, to update the copy while readers
+     * may still hold the word. The copy shares the storage of the
+     * postings in O(1), the word is left as is by later changes to it.
+     * @return the copy of the word.
+     */
+    public Word copy() {
+        Word res = new Word(word);
+        res.frequency = frequency;
+        res.index = new Postings(index);
+        return res;
+    }
     /**
      * Instance method to set the data of the word.
      * @param newWord specifies the new string data.
      */
     public void setWord(String newWord) {
         word = newWord;
+        computeKeys();
+    }
+    /**
+     * Helper method to compute the collation keys of the word.
+     */
+    private void computeKeys() {
+        key = 0;
+        foldedKey = 0;
+        boolean surrogate = false;
+        for (int i = 0; i < KEY_CHARS; i++) {
+            char c = word != null && i < word.length() ? word.charAt(i) : 0;
+            char folded = Character.toLowerCase(Character.toUpperCase(c));
+            if (surrogate || Character.isSurrogate(c)) {
+                surrogate = true;
+                folded = Character.MAX_VALUE;
+            }
+            key = (key << 16) | c;
+            foldedKey = (foldedKey << 16) | folded;
+        }
     }
     /**
      * Instance method to set the frequency of the word.
@@ -74,11 +190,98 @@ public class Word implements Comparable<Word> {
     public void addToIndex(Integer i) {
         index.add(i);
     }
+    /**
+     * Instance method to add to set of line indexes, without boxing.
+     * @param i new line index to be added.
+     */
+    public void addToIndex(int i) {
+        index.add(i);
+    }
+    /**
+     * Instance method to add to the postings of a word, without boxing.
+     * @param docId specifies the document id of the posting.
+     * @param line specifies the line index of the posting.
+     */
+    public void addToIndex(int docId, int line) {
+        index.add(docId, line);
+    }
+    /**
+     * Instance method to add the occurrences of another word to this word,
+     * the frequencies are summed and the postings added, with their line
+     * indexes shifted.
+     * @param other specifies the word with the occurrences to add.
+     * @param lineOffset specifies the amount to shift line indexes by.
+     */
+    public void merge(Word other, int lineOffset) {
+        frequency += other.frequency;
+        index.addAll(other.index, lineOffset);
+    }
+    /**
+     * Instance method to compare words ignoring case, as
+     * String.compareToIgnoreCase() does. The first characters are
+     * compared by the case-folded collation keys computed once per word,
+     * the strings only if those are equal. From a surrogate on, the
+     * folded key holds the largest character, as supplementary characters
+     * are compared by code point, so the strings decide.
+     * @param o specifies the word to compare to.
+     * @return negative, zero or positive as this word is less, equal or
+     * greater ignoring case.
+     */
+    public int compareToIgnoreCase(Word o) {
+        if (foldedKey != o.foldedKey) {
+            return Long.compareUnsigned(foldedKey, o.foldedKey);
+        }
+        return word.compareToIgnoreCase(o.word);
+    }
+    /**
+     * Instance method to hash the word consistently with compareTo(),
+     * words equal in natural order hash equal.
+     * @return the hash of the word.
+     */
+    public int naturalHash() {
+        return word.hashCode();
+    }
+    /**
+     * Instance method to hash the word consistently with
+     * compareToIgnoreCase(), words equal ignoring case hash equal. Each
+     * code point is folded as String.compareToIgnoreCase() folds it.
+     * @return the hash of the word ignoring case.
+     */
+    public int foldedHash() {
+        int h = 0;
+        for (int i = 0; i < word.length(); ) {
+            int c = word.codePointAt(i);
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(c));
+            i += Character.charCount(c);
+        }
+        return h;
+    }
+    /**
+     * Static method to get the hash of words agreeing with an ordering,
+     * so words comparing equal in that ordering hash equal.
+     * @param comparator specifies the ordering, null for natural ordering.
+     * @return the hash function, null if the ordering has none, as for
+     * orderings on the frequency, which changes while indexing.
+     */
+    public static ToIntFunction<Word> hasher(Comparator<Word> comparator) {
+        if (comparator == null) {
+            return Word::naturalHash;
+        }
+        if (comparator instanceof IgnoreCase) {
+            return Word::foldedHash;
+        }
+        return null;
+    }
     /**
      * Implementation of natural ordering for instance of Word.
+     * The first characters are compared by the collation keys computed
+     * once per word, the strings only if those are equal.
      */
     @Override
     public int compareTo(Word o) {
+        if (key != o.key) {
+            return Long.compareUnsigned(key, o.key);
+        }
         return word.compareTo(o.word);
     }
     /**
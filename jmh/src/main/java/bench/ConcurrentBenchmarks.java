@@ -0,0 +1,162 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * @author Dhanush Venkataramu
+ * Class for the JMH benchmarks of ConcurrentBST with threads sharing one
+ * tree. Each call counts or searches one token of the corpus, each thread
+ * starting at its own share of it, so scores are in tokens per second
+ * over all threads.
+ *
+ * ingest counts tokens into a tree that starts empty, query searches a
+ * tree holding the corpus; run them with -t 1, -t 2, -t 4 and so on for
+ * the scaling from 1 to N threads. mixed runs one thread counting and
+ * three searching the same tree.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ConcurrentBenchmarks {
+
+    /**
+     * Static nested class for the tree shared by all threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Shared {
+        /**
+         * Distribution of the tokens.
+         */
+        @Param({"zipfian", "uniform"})
+        public String corpus;
+        /**
+         * Number of tokens of the corpus.
+         */
+        @Param({"1000000"})
+        public int tokens;
+        /**
+         * Number of distinct words of the corpus.
+         */
+        @Param({"50000"})
+        public int vocabulary;
+        /**
+         * Upsert and search on a tree starting empty.
+         */
+        private IntUnaryOperator[] empty;
+        /**
+         * Upsert and search on a tree holding the corpus.
+         */
+        private IntUnaryOperator[] filled;
+
+        /**
+         * Instance method to build the trees, once per iteration so the
+         * ingest tree starts empty each time.
+         */
+        @Setup(Level.Iteration)
+        public void setUp() {
+            empty = Harness.sharedWorkload(corpus, tokens, vocabulary, false);
+            if (filled == null) {
+                filled = Harness.sharedWorkload(corpus, tokens, vocabulary, true);
+            }
+        }
+    }
+
+    /**
+     * Static nested class for the position of a thread in the
+     * corpus.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        /**
+         * Position of the next token of the thread.
+         */
+        private int next;
+
+        /**
+         * Instance method to start the thread at its share of the corpus.
+         * @param shared specifies the shared tree and corpus.
+         * @param thread specifies the thread parameters.
+         */
+        @Setup(Level.Iteration)
+        public void setUp(Shared shared, ThreadParams thread) {
+            next = (int) ((long) shared.tokens * thread.getThreadIndex() / thread.getThreadCount());
+        }
+
+        /**
+         * Instance method to get the position of the next token.
+         * @return the position, wrapping at the largest int.
+         */
+        int next() {
+            int res = next;
+            next = res == Integer.MAX_VALUE ? 0 : res + 1;
+            return res;
+        }
+    }
+
+    /**
+     * Benchmark counting a token into a tree starting empty.
+     * @param shared specifies the shared tree.
+     * @param cursor specifies the position of the thread.
+     * @return 1.
+     */
+    @Benchmark
+    public int ingest(Shared shared, Cursor cursor) {
+        return shared.empty[0].applyAsInt(cursor.next());
+    }
+
+    /**
+     * Benchmark searching a token in a tree holding the corpus.
+     * @param shared specifies the shared tree.
+     * @param cursor specifies the position of the thread.
+     * @return 1 if found, 0 otherwise.
+     */
+    @Benchmark
+    public int query(Shared shared, Cursor cursor) {
+        return shared.filled[1].applyAsInt(cursor.next());
+    }
+
+    /**
+     * Benchmark counting tokens into a tree while other threads search it.
+     * @param shared specifies the shared tree.
+     * @param cursor specifies the position of the thread.
+     * @return 1.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public int mixedIngest(Shared shared, Cursor cursor) {
+        return shared.empty[0].applyAsInt(cursor.next());
+    }
+
+    /**
+     * Benchmark searching tokens in a tree while another thread counts
+     * into it.
+     * @param shared specifies the shared tree.
+     * @param cursor specifies the position of the thread.
+     * @return 1 if found, 0 otherwise.
+     */
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public int mixedQuery(Shared shared, Cursor cursor) {
+        return shared.empty[1].applyAsInt(cursor.next());
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * @author Dhanush Venkataramu
+ * Class for getting the workloads of the Benchmark harness. The indexer
+ * classes are in the default package, which classes of a package cannot
+ * name, and JMH does not run benchmarks in the default package. So the
+ * workloads are looked up by reflection once per trial, and then run
+ * through java.util.function interfaces without any reflection.
+ */
+final class Harness {
+    /**
+     * Private constructor, the class only has static methods.
+     */
+    private Harness() {
+    }
+    /**
+     * Static method to get one benchmark of the harness on a corpus, as
+     * Benchmark.workload() gives it.
+     * @param benchmark specifies the name of the benchmark in the harness.
+     * @param corpus specifies the name of the corpus.
+     * @param tokens specifies the number of tokens of the corpus.
+     * @param vocabulary specifies the number of distinct words.
+     * @return the benchmark, run once by the first supplier, and the
+     * height of its tree, given by the second.
+     */
+    static IntSupplier[] workload(String benchmark, String corpus, int tokens, int vocabulary) {
+        return (IntSupplier[]) invoke("workload",
+                                      new Class<?>[] {String.class, String.class, int.class, int.class},
+                                      benchmark, corpus, tokens, vocabulary);
+    }
+    /**
+     * Static method to get the upsert and search operations on one shared
+     * ConcurrentBST, as Benchmark.sharedWorkload() gives them.
+     * @param corpus specifies the name of the corpus.
+     * @param tokens specifies the number of tokens of the corpus.
+     * @param vocabulary specifies the number of distinct words.
+     * @param filled specifies if the tree starts with the corpus in it.
+     * @return the upsert and the search operation, each given a token.
+     */
+    static IntUnaryOperator[] sharedWorkload(String corpus, int tokens, int vocabulary, boolean filled) {
+        return (IntUnaryOperator[]) invoke("sharedWorkload",
+                                           new Class<?>[] {String.class, int.class, int.class, boolean.class},
+                                           corpus, tokens, vocabulary, filled);
+    }
+    /**
+     * Helper method to call a static method of Benchmark.
+     * @param name specifies the name of the method.
+     * @param types specifies the parameter types of the method.
+     * @param args specifies the arguments.
+     * @return the result of the method.
+     * @throws IllegalStateException if Benchmark or the method is missing.
+     * @throws IllegalArgumentException if the method rejects the arguments.
+     */
+    private static Object invoke(String name, Class<?>[] types, Object... args) {
+        try {
+            return Class.forName("Benchmark").getMethod(name, types).invoke(null, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Benchmark." + name + " not found", e);
+        }
+    }
+}
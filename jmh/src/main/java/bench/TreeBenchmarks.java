@@ -0,0 +1,284 @@
+package bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * @author Dhanush Venkataramu
+ * Class for the JMH benchmarks of the trees and of Index, one per row of
+ * the Benchmark harness, on the same synthetic corpora.
+ *
+ * Each call runs the operation over the whole corpus, or the whole tree
+ * for iteration and sorting. The primary score is in calls per second,
+ * and the ops counter gives tokens (or elements) per second. Run with
+ * -prof gc for the allocation rate; the height of the tree used is
+ * printed at the end of each trial. A plain BST on a sorted corpus does
+ * quadratic work and fails its setup, as the harness skips it.
+ *
+ * The corpus holds one int per token, so -p tokens=100000000 fits in the
+ * 2 GB heap each fork is given.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class TreeBenchmarks {
+    /**
+     * Name in the harness of each benchmark method.
+     */
+    private static final Map<String, String> NAMES = new HashMap<String, String>();
+    static {
+        NAMES.put("bstInsertPlain", "BST.insert plain");
+        NAMES.put("bstSearchPlain", "BST.search plain");
+        NAMES.put("bstInsertBalanced", "BST.insert balanced");
+        NAMES.put("bstSearchBalanced", "BST.search balanced");
+        NAMES.put("bstSearchHashed", "BST.search hashed");
+        NAMES.put("bstIteratorBalanced", "BST.iterator balanced");
+        NAMES.put("arenaBstInsertBalanced", "ArenaBST.insert balanced");
+        NAMES.put("bTreeInsert", "BTree.insert");
+        NAMES.put("buildIndexNatural", "Index.buildIndex natural");
+        NAMES.put("buildIndexIgnoreCase", "Index.buildIndex IgnoreCase");
+        NAMES.put("sortByFrequency", "Index.sortByFrequency");
+        NAMES.put("getHighestFrequency", "Index.getHighestFrequency");
+        NAMES.put("buildIndexFrequencies", "Index.buildIndex frequencies");
+        NAMES.put("frequencyIndexIterator", "FrequencyIndex iterator");
+    }
+    /**
+     * Distribution of the tokens.
+     */
+    @Param({"zipfian", "uniform", "sorted", "reverse"})
+    public String corpus;
+    /**
+     * Number of tokens of the corpus.
+     */
+    @Param({"10000", "1000000"})
+    public int tokens;
+    /**
+     * Number of distinct words of the corpus.
+     */
+    @Param({"50000"})
+    public int vocabulary;
+    /**
+     * Benchmark of the harness being run, and the height of its tree.
+     */
+    private IntSupplier[] workload;
+    /**
+     * Name of the benchmark being run.
+     */
+    private String name;
+
+    /**
+     * Instance method to set up the benchmark of the method being run.
+     * @param params specifies the parameters of the run.
+     * @throws IllegalStateException for a plain BST on a sorted corpus.
+     */
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        String method = params.getBenchmark();
+        name = NAMES.get(method.substring(method.lastIndexOf('.') + 1));
+        if (name.endsWith(" plain") && (corpus.equals("sorted") || corpus.equals("reverse"))) {
+            throw new IllegalStateException("Skipped: a plain BST on a " + corpus + " corpus is a list");
+        }
+        workload = Harness.workload(name, corpus, tokens, vocabulary);
+    }
+
+    /**
+     * Instance method to print the height of the tree used.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(name + " on " + corpus + ": tree height " + workload[1].getAsInt());
+    }
+
+    /**
+     * Static nested class counting tokens or elements, reported
+     * per second next to the primary score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Ops {
+        /**
+         * Number of tokens or elements done in the iteration.
+         */
+        public long ops;
+
+        /**
+         * Instance method to reset the count for an iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            ops = 0;
+        }
+    }
+
+    /**
+     * Helper method to run the benchmark once.
+     * @param ops specifies the counter of tokens or elements.
+     * @return the number of tokens or elements done.
+     */
+    private int run(Ops ops) {
+        int res = workload[0].getAsInt();
+        ops.ops += res;
+        return res;
+    }
+
+    /**
+     * Benchmark inserting the corpus into a plain BST.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int bstInsertPlain(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark searching the corpus in a plain BST.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int bstSearchPlain(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark inserting the corpus into a balanced BST.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int bstInsertBalanced(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark searching the corpus in a balanced BST.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int bstSearchBalanced(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark searching the corpus in a balanced BST with a hash table.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int bstSearchHashed(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark iterating a balanced BST of the corpus.
+     * @param ops specifies the counter of elements.
+     * @return the number of elements.
+     */
+    @Benchmark
+    public int bstIteratorBalanced(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark inserting the corpus into a balanced ArenaBST.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int arenaBstInsertBalanced(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark inserting the corpus into a BTree.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int bTreeInsert(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark building an index of the corpus text in natural order.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int buildIndexNatural(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark building an index of the corpus text ignoring case.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int buildIndexIgnoreCase(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark sorting an index of the corpus by frequency.
+     * @param ops specifies the counter of elements.
+     * @return the number of elements.
+     */
+    @Benchmark
+    public int sortByFrequency(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark finding the words of highest frequency of an index.
+     * @param ops specifies the counter of elements.
+     * @return the number of elements.
+     */
+    @Benchmark
+    public int getHighestFrequency(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark building an index of the corpus text with a frequency
+     * index kept up to date.
+     * @param ops specifies the counter of tokens.
+     * @return the number of tokens.
+     */
+    @Benchmark
+    public int buildIndexFrequencies(Ops ops) {
+        return run(ops);
+    }
+
+    /**
+     * Benchmark iterating the frequency index of an index of the corpus.
+     * @param ops specifies the counter of elements.
+     * @return the number of elements.
+     */
+    @Benchmark
+    public int frequencyIndexIterator(Ops ops) {
+        return run(ops);
+    }
+}